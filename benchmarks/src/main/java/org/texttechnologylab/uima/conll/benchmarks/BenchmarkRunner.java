@@ -0,0 +1,26 @@
+package org.texttechnologylab.uima.conll.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the {@link GCProfiler}, such that the allocation rate is reported next to the throughput.
+ * <p>
+ * Accepts the same arguments as the JMH main class, eg. a benchmark regex, {@code -p tokens=10000} to restrict the
+ * parameters or {@code -rf json -rff results.json} to keep the results for comparisons across releases.
+ * </p>
+ */
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()
+		).run();
+	}
+}
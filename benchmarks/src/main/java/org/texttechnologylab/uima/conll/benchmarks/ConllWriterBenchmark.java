@@ -0,0 +1,69 @@
+package org.texttechnologylab.uima.conll.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer;
+import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+import org.texttechnologylab.uima.conll.iobencoder.MergedCasPool;
+import org.texttechnologylab.uima.conll.iobencoder.TTLabHierarchicalIobEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ConllBIO2003Writer#printConllFile(GenericIobEncoder)} for an encoder that has been built once
+ * per trial. The CoNLL file is written to a temporary directory, which is deleted after the trial together with the
+ * writer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConllWriterBenchmark {
+	
+	@Benchmark
+	public void printConllFile(WriterState state) throws AnalysisEngineProcessException {
+		state.writer.printConllFile(state.encoder);
+	}
+	
+	public static class WriterState extends DocumentState {
+		
+		File targetLocation;
+		ConllBIO2003Writer writer;
+		GenericIobEncoder<Annotation> encoder;
+		
+		@Setup(Level.Trial)
+		public void build() throws UIMAException, IOException {
+			createDocument();
+			targetLocation = Files.createTempDirectory("conll-benchmark").toFile();
+			
+			writer = new ConllBIO2003Writer();
+			writer.initialize(UimaContextFactory.createUimaContext(
+					ConllBIO2003Writer.PARAM_TARGET_LOCATION, targetLocation.getPath(),
+					ConllBIO2003Writer.PARAM_USE_TTLAB_TYPESYSTEM, true,
+					ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 4
+			));
+			
+			JCas mergedCas = MergedCasPool.createMergedCas();
+			TTLabHierarchicalIobEncoder encoder = new TTLabHierarchicalIobEncoder(jCas);
+			encoder.setMergeViews(true);
+			encoder.setMergedCas(mergedCas);
+			encoder.build();
+			this.encoder = encoder;
+		}
+		
+		@TearDown(Level.Trial)
+		public void destroy() throws IOException {
+			writer.destroy();
+			FileUtils.deleteDirectory(targetLocation);
+		}
+	}
+}
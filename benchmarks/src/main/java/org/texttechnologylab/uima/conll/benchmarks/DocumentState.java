@@ -0,0 +1,65 @@
+package org.texttechnologylab.uima.conll.benchmarks;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+/**
+ * The benchmark parameters describing the shape of a document and the synthetic document created from them by the
+ * {@link SyntheticCorpusGenerator} once per trial.
+ */
+@State(Scope.Thread)
+public class DocumentState {
+	
+	public static final long SEED = 42L;
+	
+	/**
+	 * The number of tokens per document.
+	 */
+	@Param({"1000", "10000"})
+	public int tokens;
+	
+	/**
+	 * The number of distinct entities per document.
+	 */
+	@Param({"100", "1000"})
+	public int entities;
+	
+	/**
+	 * The number of entities in each chain of nested entities.
+	 */
+	@Param({"1", "3"})
+	public int depth;
+	
+	/**
+	 * The number of annotator views.
+	 */
+	@Param({"1", "4"})
+	public int views;
+	
+	public JCas jCas;
+	
+	/**
+	 * Create the document, if it has not been created yet. May be called from the setup methods of subclasses, which
+	 * are not ordered relative to this one.
+	 */
+	@Setup(Level.Trial)
+	public void createDocument() throws UIMAException {
+		if (jCas == null)
+			jCas = getGenerator().createJCas(0);
+	}
+	
+	SyntheticCorpusGenerator getGenerator() {
+		SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(SEED);
+		generator.setTokenCount(tokens);
+		generator.setEntityDensity((double) entities / tokens);
+		generator.setNestingDepth(depth);
+		generator.setViewCount(views);
+		return generator;
+	}
+}
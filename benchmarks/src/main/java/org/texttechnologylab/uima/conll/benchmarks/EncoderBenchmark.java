@@ -0,0 +1,131 @@
+package org.texttechnologylab.uima.conll.benchmarks;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openjdk.jmh.annotations.*;
+import org.texttechnologylab.annotation.AbstractNamedEntity;
+import org.texttechnologylab.annotation.NamedEntity;
+import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+import org.texttechnologylab.uima.conll.iobencoder.MergedCasPool;
+import org.texttechnologylab.uima.conll.iobencoder.TTLabHierarchicalIobEncoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.uima.fit.util.JCasUtil.select;
+
+/**
+ * Benchmarks of the stages of {@link TTLabHierarchicalIobEncoder#build()}: the complete build, {@link
+ * GenericIobEncoder#mergeViews() mergeViews}, {@link GenericIobEncoder#removeDuplicates(LinkedHashSet)
+ * removeDuplicates} and the creation of the NE hierarchy by {@link GenericIobEncoder#breadthFirstSearch(ArrayList)
+ * breadthFirstSearch} or {@link GenericIobEncoder#naiveStackingApproach(JCas, ArrayList) naiveStackingApproach}.
+ * <p>
+ * As the stages modify the state of the encoder, the input of the isolated stages is restored before each invocation,
+ * outside of the measurement.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncoderBenchmark {
+	
+	@Benchmark
+	public GenericIobEncoder<Annotation> build(EncoderState state) throws UIMAException {
+		TTLabHierarchicalIobEncoder encoder = state.createEncoder();
+		encoder.build();
+		return encoder;
+	}
+	
+	@Benchmark
+	public JCas mergeViews(EncoderState state) throws UIMAException {
+		TTLabHierarchicalIobEncoder encoder = state.createEncoder();
+		encoder.mergeViews();
+		return encoder.getMergedCas();
+	}
+	
+	@Benchmark
+	public LinkedHashSet<Annotation> removeDuplicates(DuplicatesState state) {
+		state.encoder.removeDuplicates(state.namedEntities);
+		return state.namedEntities;
+	}
+	
+	@Benchmark
+	public GenericIobEncoder<Annotation> breadthFirstSearch(HierarchyState state) {
+		state.encoder.breadthFirstSearch(state.tokens);
+		return state.encoder;
+	}
+	
+	@Benchmark
+	public GenericIobEncoder<Annotation> naiveStackingApproach(HierarchyState state) {
+		state.encoder.naiveStackingApproach(state.encoder.getMergedCas(), state.tokens);
+		return state.encoder;
+	}
+	
+	/**
+	 * Creates encoders for the document, all of which share a single merged CAS.
+	 */
+	public static class EncoderState extends DocumentState {
+		
+		JCas mergedCas;
+		
+		TTLabHierarchicalIobEncoder createEncoder() throws UIMAException {
+			if (mergedCas == null)
+				mergedCas = MergedCasPool.createMergedCas();
+			TTLabHierarchicalIobEncoder encoder = new TTLabHierarchicalIobEncoder(jCas);
+			encoder.setMergeViews(true);
+			encoder.setMergedCas(mergedCas);
+			return encoder;
+		}
+	}
+	
+	/**
+	 * Holds the merged entities of the document, copied before each invocation.
+	 */
+	public static class DuplicatesState extends EncoderState {
+		
+		TTLabHierarchicalIobEncoder encoder;
+		ArrayList<Annotation> mergedEntities;
+		LinkedHashSet<Annotation> namedEntities;
+		
+		@Setup(Level.Trial)
+		public void mergeViews() throws UIMAException {
+			createDocument();
+			encoder = createEncoder();
+			encoder.mergeViews();
+			mergedEntities = new ArrayList<>(select(encoder.getMergedCas(), NamedEntity.class));
+			mergedEntities.addAll(select(encoder.getMergedCas(), AbstractNamedEntity.class));
+		}
+		
+		@Setup(Level.Invocation)
+		public void copyEntities() {
+			namedEntities = new LinkedHashSet<>(mergedEntities);
+		}
+	}
+	
+	/**
+	 * Holds a built encoder, whose NE hierarchy is reset to the ranked entities before each invocation.
+	 */
+	public static class HierarchyState extends EncoderState {
+		
+		TTLabHierarchicalIobEncoder encoder;
+		ArrayList<Token> tokens;
+		
+		@Setup(Level.Trial)
+		public void build() throws UIMAException {
+			createDocument();
+			encoder = createEncoder();
+			encoder.build();
+			tokens = new ArrayList<>(select(encoder.getMergedCas(), Token.class));
+		}
+		
+		@Setup(Level.Invocation)
+		public void resetHierarchy() {
+			encoder.resetHierarchy(tokens);
+		}
+	}
+}
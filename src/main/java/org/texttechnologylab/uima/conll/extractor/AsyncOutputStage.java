@@ -0,0 +1,155 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decouples writing output files from formatting them.
+ * <p>
+ * The streams returned by {@link #open(File)} buffer the whole file in memory. Once closed, the buffered content is
+ * put into a bounded queue, which is drained by dedicated writer threads that write each file with a single call.
+ * If the queue is full, closing a stream blocks until a writer thread has taken a file, such that slow disks throttle
+ * the formatting threads instead of filling the heap.
+ * </p><p>
+ * The first failure of a writer thread is kept and rethrown by {@link #checkFailure()}, by the next stream that is
+ * closed and by {@link #close()}. Files that are queued after a failure are discarded.
+ * </p>
+ */
+final class AsyncOutputStage implements AutoCloseable {
+	
+	private static final PendingFile END = new PendingFile(null, null, 0);
+	
+	private final ArrayBlockingQueue<PendingFile> queue;
+	private final ArrayList<Thread> writerThreads;
+	private final AtomicReference<IOException> failure = new AtomicReference<>();
+	private volatile boolean closed = false;
+	
+	/**
+	 * @param threads  The number of writer threads.
+	 * @param capacity The maximum number of files waiting to be written.
+	 */
+	AsyncOutputStage(int threads, int capacity) {
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		this.writerThreads = new ArrayList<>(threads);
+		for (int i = 0; i < Math.max(1, threads); i++) {
+			Thread thread = new Thread(this::drain, String.format("conll-writer-%d", i));
+			thread.setDaemon(true);
+			thread.start();
+			writerThreads.add(thread);
+		}
+	}
+	
+	/**
+	 * @return A stream that buffers the content of the given file, which is queued for writing once the stream is
+	 * closed.
+	 */
+	OutputStream open(File file) throws IOException {
+		checkFailure();
+		return new ByteArrayOutputStream(8192) {
+			private boolean queued = false;
+			
+			@Override
+			public void close() throws IOException {
+				if (!queued) {
+					queued = true;
+					put(new PendingFile(file, buf, count));
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @throws IOException The first failure of any writer thread.
+	 */
+	void checkFailure() throws IOException {
+		IOException exception = failure.get();
+		if (exception != null)
+			throw new IOException("Writing an output file failed.", exception);
+	}
+	
+	private void put(PendingFile pendingFile) throws IOException {
+		if (closed)
+			throw new IOException(String.format("Cannot write '%s', the output stage is already closed.", pendingFile.file));
+		try {
+			while (!queue.offer(pendingFile, 100, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format("Interrupted while queueing '%s'.", pendingFile.file));
+		}
+		checkFailure();
+	}
+	
+	private void drain() {
+		try {
+			PendingFile pendingFile;
+			while ((pendingFile = queue.take()) != END) {
+				if (failure.get() != null)
+					continue;
+				try (OutputStream outputStream = FileUtils.openOutputStream(pendingFile.file)) {
+					outputStream.write(pendingFile.content, 0, pendingFile.length);
+				} catch (IOException e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		} catch (InterruptedException ignored) {
+			// Stopped by close()
+		}
+	}
+	
+	/**
+	 * @return True, if {@link #close()} has been called and no more files are accepted.
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Wait for all queued files to be written and stop the writer threads.
+	 *
+	 * @throws IOException The first failure of any writer thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			for (int i = 0; i < writerThreads.size(); i++) {
+				queue.put(END);
+			}
+			for (Thread thread : writerThreads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			for (Thread thread : writerThreads) {
+				thread.interrupt();
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the output files to be written.");
+		}
+		checkFailure();
+	}
+	
+	private static final class PendingFile {
+		final File file;
+		final byte[] content;
+		final int length;
+		
+		PendingFile(File file, byte[] content, int length) {
+			this.file = file;
+			this.content = content;
+			this.length = length;
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package org.texttechnologylab.uima.conll.extractor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Streams;
@@ -11,6 +13,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.UimaContext;
@@ -27,21 +30,36 @@ import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.dkpro.core.api.parameter.ComponentParameters;
 import org.texttechnologylab.iaa.AgreementContainer;
+import org.texttechnologylab.uima.conll.extractor.WriterStatistics.SkipReason;
 import org.texttechnologylab.uima.conll.iobencoder.DKProHierarchicalIobEncoder;
+import org.texttechnologylab.uima.conll.iobencoder.EncoderSnapshot;
 import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+import org.texttechnologylab.uima.conll.iobencoder.MergedCasPool;
 import org.texttechnologylab.uima.conll.iobencoder.TTLabHierarchicalIobEncoder;
 
 import javax.annotation.Nonnull;
 import javax.validation.constraints.NotNull;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+/**
+ * Writes the named entities of each document in a CoNLL 2003 like format.
+ * <p>
+ * A single instance may be shared by multiple threads: all configuration is read-only after {@link
+ * #initialize(UimaContext)}, per-document state is kept on the stack and run-wide counters are kept in a {@link
+ * WriterStatistics}. Separate instances with the same {@link #PARAM_TARGET_LOCATION}, e.g. one for each thread of a
+ * {@link org.texttechnologylab.uima.conll.run.ParallelXmiPipeline ParallelXmiPipeline}, share their statistics by
+ * {@link SharedResources}, which are reported once by the last instance to {@link #collectionProcessComplete()
+ * complete}.
+ * </p>
+ */
 public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 	
 	// Start of AnalysisComponent parameters
@@ -137,6 +155,14 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(name = PARAM_MERGE_VIEWS, mandatory = false, defaultValue = "true")
 	private Boolean pMergeViews;
 	
+	/**
+	 * If true, the encoders only copy the annotation types that are written into their merged CAS, instead of the whole
+	 * CAS. See {@link GenericIobEncoder#setUseProjectionMerge(boolean)}. Default: false.
+	 */
+	public static final String PARAM_PROJECTION_MERGE = "pProjectionMerge";
+	@ConfigurationParameter(name = PARAM_PROJECTION_MERGE, mandatory = false, defaultValue = "false")
+	private Boolean pProjectionMerge;
+	
 	public static final String PARAM_REMOVE_DUPLICATES_SAME_TYPE = "pRemoveDuplicatesSameType";
 	@ConfigurationParameter(name = PARAM_REMOVE_DUPLICATES_SAME_TYPE, mandatory = false, defaultValue = "true")
 	private Boolean pRemoveDuplicatesSameType;
@@ -193,12 +219,184 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(name = PARAM_TAG_ALL_AS, mandatory = false)
 	protected String pTagAllAs;
 	
+	/**
+	 * If greater than zero, output files are formatted in memory and written asynchronously by this number of
+	 * dedicated threads, see {@link AsyncOutputStage}. Default: 0, writing synchronously within {@link #process(JCas)}.
+	 */
+	public static final String PARAM_ASYNC_WRITER_THREADS = "pAsyncWriterThreads";
+	@ConfigurationParameter(name = PARAM_ASYNC_WRITER_THREADS, mandatory = false, defaultValue = "0")
+	private Integer pAsyncWriterThreads;
+	
+	/**
+	 * The maximum number of formatted files waiting for an asynchronous writer thread. If the queue is full, {@link
+	 * #process(JCas)} blocks until a file has been taken. Default: 64.
+	 */
+	public static final String PARAM_ASYNC_QUEUE_CAPACITY = "pAsyncQueueCapacity";
+	@ConfigurationParameter(name = PARAM_ASYNC_QUEUE_CAPACITY, mandatory = false, defaultValue = "64")
+	private Integer pAsyncQueueCapacity;
+	
+	/**
+	 * If set, the CoNLL output of all documents is written directly into the files "train" and "test" with the {@link
+	 * #PARAM_FILENAME_EXTENSION} in this directory, instead of one file per document. All instances with the same
+	 * dataset location share their files, see {@link DatasetSink}.
+	 */
+	public static final String PARAM_DATASET_LOCATION = "pDatasetLocation";
+	@ConfigurationParameter(name = PARAM_DATASET_LOCATION, mandatory = false)
+	private String pDatasetLocation;
+	
+	/**
+	 * The ids of the documents that are written to the test file if {@link #PARAM_DATASET_LOCATION} is set, as
+	 * returned by {@link #getFileName(JCas)}. All other documents are written to the training file.
+	 */
+	public static final String PARAM_DATASET_TEST_IDS = "pDatasetTestIds";
+	@ConfigurationParameter(name = PARAM_DATASET_TEST_IDS, mandatory = false, defaultValue = {})
+	private String[] pDatasetTestIds;
+	
+	/**
+	 * If true, the CoNLL and raw text files are GZIP compressed and their names end with an additional {@link
+	 * #GZIP_EXTENSION}. Default: false.
+	 */
+	public static final String PARAM_COMPRESS = "pCompress";
+	@ConfigurationParameter(name = PARAM_COMPRESS, mandatory = false, defaultValue = "false")
+	private Boolean pCompress;
+	
+	/**
+	 * The {@link Deflater} compression level from 1 (fastest) to 9 (smallest) if {@link
+	 * #PARAM_COMPRESS} is true. Default: 6.
+	 */
+	public static final String PARAM_COMPRESSION_LEVEL = "pCompressionLevel";
+	@ConfigurationParameter(name = PARAM_COMPRESSION_LEVEL, mandatory = false, defaultValue = "6")
+	private Integer pCompressionLevel;
+	
+	/**
+	 * The size of the buffer of the {@link GZIPOutputStream} in bytes if {@link #PARAM_COMPRESS} is true. Default:
+	 * 65536.
+	 */
+	public static final String PARAM_COMPRESSION_BUFFER_SIZE = "pCompressionBufferSize";
+	@ConfigurationParameter(name = PARAM_COMPRESSION_BUFFER_SIZE, mandatory = false, defaultValue = "65536")
+	private Integer pCompressionBufferSize;
+	
+	public static final String GZIP_EXTENSION = ".gz";
+	
+	/**
+	 * If set, the tokens and labels of each written document are additionally exported as NumPy arrays to this
+	 * directory, see {@link TensorExporter}.
+	 */
+	public static final String PARAM_TENSOR_TARGET_LOCATION = "pTensorTargetLocation";
+	@ConfigurationParameter(name = PARAM_TENSOR_TARGET_LOCATION, mandatory = false)
+	private String pTensorTargetLocation;
+	
+	/**
+	 * If true, an index of the byte offset, byte length and token count of each sentence is written next to each CoNLL
+	 * file, which allows random access with {@link IndexedConllFile}. Not supported together with {@link
+	 * #PARAM_COMPRESS} or {@link #PARAM_DATASET_LOCATION}. Default: false.
+	 */
+	public static final String PARAM_WRITE_SENTENCE_INDEX = "pWriteSentenceIndex";
+	@ConfigurationParameter(name = PARAM_WRITE_SENTENCE_INDEX, mandatory = false, defaultValue = "false")
+	private Boolean pWriteSentenceIndex;
+	
+	/**
+	 * If set, an {@link EncoderSnapshot} of each written document is stored in this directory, from which the CoNLL
+	 * file can be written again with another {@link #PARAM_STRATEGY_INDEX}, {@link #PARAM_NAMED_ENTITY_COLUMNS} or
+	 * {@link #PARAM_TAG_ALL_AS} by {@link #printConllFile(EncoderSnapshot)}, without reading the XMI again. Not
+	 * supported by the {@link OneClassPerColumnWriter}.
+	 */
+	public static final String PARAM_SNAPSHOT_TARGET_LOCATION = "pSnapshotTargetLocation";
+	@ConfigurationParameter(name = PARAM_SNAPSHOT_TARGET_LOCATION, mandatory = false)
+	String pSnapshotTargetLocation;
+	
+	/**
+	 * If set, the CoNLL files are written once for each of the given {@link OutputSpec OutputSpecs} of the form
+	 * "STRATEGY:COLUMNS", e.g. "TopDown:2", instead of once with the {@link #PARAM_STRATEGY_INDEX} and {@link
+	 * #PARAM_NAMED_ENTITY_COLUMNS}. The hierarchy of each document is built only once, the files of each spec are
+	 * written to the subdirectory {@link OutputSpec#getName()} of the {@link #PARAM_TARGET_LOCATION} and of the {@link
+	 * #PARAM_DATASET_LOCATION}. The NumPy arrays are still written with the {@link #PARAM_STRATEGY_INDEX} and {@link
+	 * #PARAM_NAMED_ENTITY_COLUMNS}. Default: none.
+	 */
+	public static final String PARAM_OUTPUT_SPECS = "pOutputSpecs";
+	@ConfigurationParameter(name = PARAM_OUTPUT_SPECS, mandatory = false, defaultValue = {})
+	String[] pOutputSpecs;
+	
 	// End of AnalysisComponent parameters
 	
+	/**
+	 * The pool of merged CASes handed to the encoders, such that each document reuses a reset CAS.
+	 */
+	private MergedCasPool mergedCasPool;
+	
+	/**
+	 * The vocabulary of the features interned by the encoders, such that all documents of this writer share them.
+	 */
+	private InternedConllFeatures.Vocabulary featureVocabulary;
+	
+	/**
+	 * The annotator names of {@link #pAnnotatorList}.
+	 */
+	private ImmutableSet<String> annotatorNames;
+	
+	private static final ImmutableSet<String> OUTSIDE_TAGS = ImmutableSet.of("O", "B-O");
+	
+	/**
+	 * The statistics of all instances writing to the {@link #PARAM_TARGET_LOCATION}.
+	 */
+	private static final SharedResources<WriterStatistics> SHARED_STATISTICS = new SharedResources<>();
+	
+	/**
+	 * The dataset files of all instances writing to the same {@link #PARAM_DATASET_LOCATION}.
+	 */
+	private static final SharedResources<DatasetSink> SHARED_DATASET_SINKS = new SharedResources<>();
+	
+	/**
+	 * The NumPy array exports of all instances writing to the same {@link #PARAM_TENSOR_TARGET_LOCATION}.
+	 */
+	private static final SharedResources<TensorExporter> SHARED_TENSOR_EXPORTERS = new SharedResources<>();
+	
+	private WriterStatistics statistics;
+	
+	/**
+	 * Set while the {@link SharedResources} of this instance are released, i.e. after {@link
+	 * #collectionProcessComplete()} until the next {@link #process(JCas)}.
+	 */
+	private final AtomicBoolean released = new AtomicBoolean(true);
+	
+	/**
+	 * The asynchronous writer threads, if {@link #PARAM_ASYNC_WRITER_THREADS} is greater than zero, null otherwise.
+	 * Closed at the end of each collection and replaced at the start of the next one.
+	 */
+	private AsyncOutputStage outputStage;
+	
+	/**
+	 * The targets of the {@link #PARAM_OUTPUT_SPECS}, or the single target of the {@link #PARAM_STRATEGY_INDEX} and
+	 * {@link #PARAM_NAMED_ENTITY_COLUMNS} if none are given.
+	 */
+	private ImmutableList<Output> outputs;
+	
+	/**
+	 * The NumPy array export, if {@link #PARAM_TENSOR_TARGET_LOCATION} is set, null otherwise.
+	 */
+	private TensorExporter tensorExporter;
 	
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
+		mergedCasPool = new MergedCasPool(Runtime.getRuntime().availableProcessors());
+		featureVocabulary = new InternedConllFeatures.Vocabulary();
+		annotatorNames = ImmutableSet.copyOf(pAnnotatorList);
+		if (pCompress && (pCompressionLevel < Deflater.BEST_SPEED || pCompressionLevel > Deflater.BEST_COMPRESSION)) {
+			throw new ResourceInitializationException(new IllegalArgumentException(String.format(
+					"Invalid compression level %d, expected 1 (fastest) to 9 (smallest).", pCompressionLevel)));
+		}
+		if (pAsyncWriterThreads > 0) {
+			outputStage = new AsyncOutputStage(pAsyncWriterThreads, pAsyncQueueCapacity);
+		}
+		if (pWriteSentenceIndex && (pCompress || pDatasetLocation != null)) {
+			getLogger().warn("Sentence indices are not supported for compressed files or datasets and will not be written.");
+		}
+		try {
+			acquireSharedResources();
+		} catch (IOException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new ResourceInitializationException(e);
+		}
 		if (pRetainClasses != null && pRetainClasses.length > 0) {
 			classesToRetain = new ArrayList<>();
 			for (String retainClass : pRetainClasses) {
@@ -214,8 +412,171 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 		}
 	}
 	
+	/**
+	 * Acquire the {@link SharedResources} of the {@link #PARAM_TARGET_LOCATION}, {@link #PARAM_DATASET_LOCATION} and
+	 * {@link #PARAM_TENSOR_TARGET_LOCATION} and create the {@link #outputs}. If any resource cannot be acquired, those
+	 * acquired so far are released again.
+	 */
+	private void acquireSharedResources() throws IOException {
+		tensorExporter = null;
+		statistics = null;
+		ArrayList<Output> acquiredOutputs = new ArrayList<>();
+		try {
+			if (pTensorTargetLocation != null) {
+				File tensorTargetLocation = new File(pTensorTargetLocation);
+				tensorExporter = SHARED_TENSOR_EXPORTERS.acquire(tensorTargetLocation,
+						Arrays.asList(pEncoderStrategyIndex, Math.max(1, pNamedEntityColumns), pFilterEmptySentences),
+						() -> new TensorExporter(tensorTargetLocation));
+			}
+			ArrayList<OutputSpec> specs = new ArrayList<>();
+			if (pOutputSpecs.length == 0) {
+				specs.add(new OutputSpec(GenericIobEncoder.Strategy.byIndex(pEncoderStrategyIndex), Math.max(1, pNamedEntityColumns)));
+			} else {
+				LinkedHashSet<OutputSpec> uniqueSpecs = new LinkedHashSet<>();
+				for (String spec : pOutputSpecs) {
+					uniqueSpecs.add(OutputSpec.parse(spec));
+				}
+				specs.addAll(uniqueSpecs);
+			}
+			for (OutputSpec spec : specs) {
+				if (pOutputSpecs.length == 0) {
+					acquiredOutputs.add(createOutput(spec, new File(targetLocation), pDatasetLocation == null ? null : new File(pDatasetLocation)));
+				} else {
+					acquiredOutputs.add(createOutput(spec, new File(targetLocation, spec.getName()), pDatasetLocation == null ? null : new File(pDatasetLocation, spec.getName())));
+				}
+			}
+			statistics = SHARED_STATISTICS.acquire(new File(targetLocation),
+					Arrays.asList(getClass(), specs, filenameSuffix + getCompressionExtension()), WriterStatistics::new);
+		} catch (IOException | RuntimeException e) {
+			outputs = ImmutableList.copyOf(acquiredOutputs);
+			discardSharedResources();
+			released.set(true);
+			throw e;
+		}
+		outputs = ImmutableList.copyOf(acquiredOutputs);
+		released.set(false);
+	}
+	
+	/**
+	 * Start the next collection, if the previous one has been completed by {@link #collectionProcessComplete()}: the
+	 * closed {@link #outputStage} is replaced and the {@link SharedResources} are acquired again, such that the next
+	 * collection is written and reported like the first one.
+	 */
+	private void startNextCollection() throws AnalysisEngineProcessException {
+		if (!released.get())
+			return;
+		synchronized (released) {
+			if (!released.get())
+				return;
+			if (outputStage != null && outputStage.isClosed())
+				outputStage = new AsyncOutputStage(pAsyncWriterThreads, pAsyncQueueCapacity);
+			try {
+				acquireSharedResources();
+			} catch (IOException | IndexOutOfBoundsException | IllegalArgumentException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Release the {@link SharedResources} of this instance without reporting them. Dataset files that are no longer
+	 * shared by any other instance are closed.
+	 */
+	private void discardSharedResources() {
+		for (Output output : outputs) {
+			if (output.datasetSink == null || !SHARED_DATASET_SINKS.release(output.datasetSink))
+				continue;
+			try {
+				output.datasetSink.close();
+			} catch (IOException e) {
+				getLogger().error("Failed to close the dataset files.", e);
+			}
+		}
+		if (tensorExporter != null)
+			SHARED_TENSOR_EXPORTERS.release(tensorExporter);
+		if (statistics != null)
+			SHARED_STATISTICS.release(statistics);
+	}
+	
+	/**
+	 * Release the {@link SharedResources} of this instance. The last instance to release a resource finishes it, i.e.
+	 * closes the dataset files, writes the vocabularies and reports the statistics. The {@link #outputStage} is closed
+	 * once all queued files have been written. Both are opened again by the next call of {@link #process(JCas)}, if
+	 * this instance is reused for another collection.
+	 */
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		if (outputStage != null) {
+			try {
+				outputStage.close();
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+		if (released.getAndSet(true))
+			return;
+		
+		// Release all shared resources before finishing those released last, which may fail
+		ArrayList<Output> completedDatasets = new ArrayList<>();
+		for (Output output : outputs) {
+			if (output.datasetSink != null && SHARED_DATASET_SINKS.release(output.datasetSink))
+				completedDatasets.add(output);
+		}
+		boolean completedTensorExporter = tensorExporter != null && SHARED_TENSOR_EXPORTERS.release(tensorExporter);
+		boolean completedStatistics = SHARED_STATISTICS.release(statistics);
+		
+		for (Output output : completedDatasets) {
+			DatasetSink datasetSink = output.datasetSink;
+			try {
+				datasetSink.close();
+				datasetSink.checkFailure();
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+			getLogger().info(String.format("Wrote %d training and %d test documents to '%s'.",
+					datasetSink.getTrainDocuments(), datasetSink.getTestDocuments(), output.datasetLocation));
+			Set<String> missingTestIds = datasetSink.getMissingTestIds();
+			if (!missingTestIds.isEmpty()) {
+				getLogger().warn(String.format("No documents were written for the test ids %s.", missingTestIds));
+			}
+		}
+		if (completedTensorExporter) {
+			try {
+				tensorExporter.writeVocabularies();
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+		if (completedStatistics) {
+			getLogger().info(statistics.toString());
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		if (outputStage != null) {
+			try {
+				outputStage.close();
+			} catch (IOException e) {
+				getLogger().error("Failed to write the remaining output files.", e);
+			}
+		}
+		// Only reached without a prior collectionProcessComplete, e.g. after a failure
+		if (!released.getAndSet(true)) {
+			discardSharedResources();
+		}
+		super.destroy();
+	}
+	
+	WriterStatistics getStatistics() {
+		return statistics;
+	}
+	
 	@Override
 	public void process(JCas aJCas) throws AnalysisEngineProcessException {
+		startNextCollection();
+		checkOutputStage();
 		if (!pExportRawOnly) {
 			try {
 				boolean doFilterByAgreement = pFilterByAgreement > 0.0;
@@ -234,15 +595,18 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 						printWithIaaFiltering(aJCas, filteredCategories, validViewNames);
 					} else {
 						printWarning(aJCas, String.format(" as no category has at least %.2f agreement.", pFilterByAgreement));
+						statistics.skipped(SkipReason.AGREEMENT);
 					}
 				} else { // No IAA filtering
 					if (validViewNames.size() >= pMinViews) { // .. but at least the required number of views
 						printWithoutIaaFiltering(aJCas, validViewNames);
 					} else {
 						printWarning(aJCas, " as it does not confirm to view constraint.");
+						statistics.skipped(SkipReason.VIEW_CONSTRAINT);
 					}
 				}
 			} catch (CASException | CASRuntimeException e) {
+				statistics.skipped(SkipReason.CAS_ERROR);
 				try {
 					getLogger().warn(String.format("%s Skipping JCas '%s'.", e.getMessage(), DocumentMetaData.get(aJCas).getDocumentId()));
 				} catch (Exception x) {
@@ -256,10 +620,33 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 		if (pExportRaw || pExportRawOnly) {
 			try (PrintWriter rawWriter = getRawPrintWriter(aJCas, pRawFilenameSuffix)) {
 				rawWriter.print(aJCas.getDocumentText());
+				statistics.rawDocumentsWritten.increment();
 			} catch (IOException e) {
-				e.printStackTrace();
+				throw new AnalysisEngineProcessException(e);
 			}
 		}
+		checkOutputStage();
+	}
+	
+	/**
+	 * Report failures of the {@link #outputStage asynchronous writer threads} and the {@link DatasetSink DatasetSinks}
+	 * back to the pipeline.
+	 */
+	private void checkOutputStage() throws AnalysisEngineProcessException {
+		try {
+			checkOutputFailure();
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+	
+	private void checkOutputFailure() throws IOException {
+		if (outputStage != null)
+			outputStage.checkFailure();
+		for (Output output : outputs) {
+			if (output.datasetSink != null)
+				output.datasetSink.checkFailure();
+		}
 	}
 	
 	@Nonnull
@@ -291,30 +678,61 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 			hierarchicalBioEncoder.setFilterFingerprinted(pFilterFingerprinted);
 			hierarchicalBioEncoder.setUseTTLabConllFeatures(pUseTTLabConllFeatures);
 			hierarchicalBioEncoder.setRemoveDuplicateSameType(pRemoveDuplicatesSameType);
+			hierarchicalBioEncoder.setUseProjectionMerge(pProjectionMerge);
 			hierarchicalBioEncoder.setMergeViews(pMergeViews);
 			// FIXME: This does not belog to TTLabHierarchicalIobEncoder, but instead only to TTLabOneColumnPerClassEncoder. Move it there and refactor this hacky selection of Encoders..
 			hierarchicalBioEncoder.setOnlyPrintPresentAnnotations(pOnlyPrintPresent);
-			hierarchicalBioEncoder.build();
-			if (hierarchicalBioEncoder.getNamedEntitiyCount() > 0) {
-				printConllFile(hierarchicalBioEncoder);
-			} else {
-				printWarning(aJCas, " as it does not contain any named entities.");
-				return true;
-			}
+			return buildAndPrint(aJCas, hierarchicalBioEncoder);
 		} else {
 			DKProHierarchicalIobEncoder hierarchicalBioEncoder = getDKProHierarchicalIobEncoder(aJCas, filteredCategories, validViewNames);
 			hierarchicalBioEncoder.setAnnotatorRelation(pAnnotatorRelation);
 			hierarchicalBioEncoder.setFilterFingerprinted(pFilterFingerprinted);
 			hierarchicalBioEncoder.setRemoveDuplicateSameType(pRemoveDuplicatesSameType);
+			hierarchicalBioEncoder.setUseProjectionMerge(pProjectionMerge);
+			return buildAndPrint(aJCas, hierarchicalBioEncoder);
+		}
+	}
+	
+	/**
+	 * Build the given encoder on a merged CAS from the {@link #mergedCasPool} and print its CoNLL file. The merged CAS
+	 * is returned to the pool afterwards. Unless snapshots are written, only the part of the hierarchy required by the
+	 * {@link #outputs} and the NumPy arrays is built, see {@link
+	 * GenericIobEncoder#requireProjection(GenericIobEncoder.Strategy, int)}.
+	 *
+	 * @return True, if the document was skipped as it does not contain any named entities.
+	 */
+	private <T extends Annotation> boolean buildAndPrint(JCas aJCas, GenericIobEncoder<T> hierarchicalBioEncoder) throws UIMAException {
+		JCas mergedCas = mergedCasPool.acquire();
+		try {
+			hierarchicalBioEncoder.setMergedCas(mergedCas);
+			hierarchicalBioEncoder.setFeatureVocabulary(featureVocabulary);
+			if (pSnapshotTargetLocation == null) {
+				for (Output output : outputs) {
+					hierarchicalBioEncoder.requireProjection(output.spec.getStrategy(), output.spec.getColumns());
+				}
+				if (tensorExporter != null)
+					hierarchicalBioEncoder.requireProjection(GenericIobEncoder.Strategy.byIndex(pEncoderStrategyIndex), Math.max(1, pNamedEntityColumns));
+			}
 			hierarchicalBioEncoder.build();
 			if (hierarchicalBioEncoder.getNamedEntitiyCount() > 0) {
 				printConllFile(hierarchicalBioEncoder);
+				try {
+					if (tensorExporter != null)
+						printTensorFiles(hierarchicalBioEncoder);
+					if (pSnapshotTargetLocation != null)
+						printSnapshot(hierarchicalBioEncoder);
+				} catch (IOException e) {
+					throw new AnalysisEngineProcessException(e);
+				}
 			} else {
 				printWarning(aJCas, " as it does not contain any named entities.");
+				statistics.skipped(SkipReason.NO_ENTITIES);
 				return true;
 			}
+			return false;
+		} finally {
+			mergedCasPool.release(mergedCas);
 		}
-		return false;
 	}
 	
 	@Nonnull
@@ -343,85 +761,60 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 		}
 	}
 	
-	<T extends Annotation> void printConllFile(GenericIobEncoder<T> hierarchicalBioEncoder) {
+	/**
+	 * Print the CoNLL file of the given encoder once for each of the {@link #outputs}.
+	 */
+	@VisibleForTesting
+	public <T extends Annotation> void printConllFile(GenericIobEncoder<T> hierarchicalBioEncoder) throws AnalysisEngineProcessException {
+		for (Output output : outputs) {
+			printConllFile(hierarchicalBioEncoder, output);
+		}
+	}
+	
+	private <T extends Annotation> void printConllFile(GenericIobEncoder<T> hierarchicalBioEncoder, Output output) throws AnalysisEngineProcessException {
 		JCas aJCas = hierarchicalBioEncoder.getMergedCas();
-		try (PrintWriter conllWriter = getPrintWriter(aJCas, filenameSuffix)) {
+		GenericIobEncoder.Strategy strategy = output.spec.getStrategy();
+		String fileName = getFileName(aJCas);
+		SentenceIndexBuilder sentenceIndex = getSentenceIndexBuilder(output, fileName, filenameSuffix);
+		try (PrintWriter conllWriter = getPrintWriter(output, fileName, filenameSuffix, sentenceIndex)) {
+			ConllRowFormatter rowFormatter = new ConllRowFormatter(conllWriter, pConllSeparator, pTagAllAs);
+			String documentText = aJCas.getDocumentText();
+			ArrayList<String> entities = new ArrayList<>();
 			
+			int sentences = 0;
 			int emptySentences = 0;
 			int globalEntityCount = 0;
 			for (Sentence sentence : select(aJCas, Sentence.class)) {
 				int entityCount = 0;
-				HashMap<Token, Row> ctokens = new LinkedHashMap<>();
 				
-				// Tokens
-				List<Token> coveredTokens = selectCovered(Token.class, sentence);
-				for (Token token : coveredTokens) {
+				// Tokens, formatted in CONLL 2006 format until the sentence is known to be written
+				for (Token token : selectCovered(Token.class, sentence)) {
 					Lemma lemma = token.getLemma();
 					POS pos = token.getPos();
-					Row row = new Row();
-					row.token = token;
 					
-					row.lemma = UNUSED;
-					if (writeChunk && lemma != null) {
-						String lemmaValue = lemma.getValue();
-						if (!Strings.isNullOrEmpty(lemmaValue) && !lemmaValue.equals("null")) {
-							row.lemma = lemmaValue;
-						} else row.lemma = UNUSED;
+					int tokenOrdinal = hierarchicalBioEncoder.getTokenOrdinal(token);
+					entities.clear();
+					hierarchicalBioEncoder.addFeaturesForNColumns(tokenOrdinal, strategy, output.spec.getColumns(), entities);
+					if (!entities.isEmpty() && !OUTSIDE_TAGS.contains(entities.get(0))) {
+						entityCount++;
 					}
 					
-					row.pos = UNUSED;
-					if (writePos && pos != null) {
-						String posValue = pos.getPosValue();
-						if (!Strings.isNullOrEmpty(posValue) && !posValue.equals("null")) {
-							row.pos = posValue;
-						}
-					}
-					
-					if (pNamedEntityColumns < 2) {
-						row.entities = hierarchicalBioEncoder.getFeatures(token, pEncoderStrategyIndex);
-						if (!row.entities.isEmpty() && !ImmutableSet.of("O", "B-O").contains(row.entities.get(0))) {
-							entityCount++;
-						}
-					} else {
-						row.entities = hierarchicalBioEncoder.getFeaturesForNColumns(token, pEncoderStrategyIndex, pNamedEntityColumns);
-						if (!row.entities.isEmpty() && !ImmutableSet.of("O", "B-O").contains(row.entities.get(0))) {
-							entityCount++;
-						}
-					}
-					
-					ctokens.put(row.token, row);
+					rowFormatter.text(documentText, token.getBegin(), token.getEnd());
+					rowFormatter.column(getColumnValue(writePos, pos == null ? null : pos.getPosValue()));
+					rowFormatter.column(getColumnValue(writeChunk, lemma == null ? null : lemma.getValue()));
+					printNamedEntityFeatures(rowFormatter, entities);
+					rowFormatter.endRow();
 				}
 				
 				// Check for empty sentences if parameter was set
 				if (!pFilterEmptySentences || entityCount > 0) {
 					globalEntityCount += entityCount;
-					// Write sentence in CONLL 2006 format
-					for (Row row : ctokens.values()) {
-						String pos = row.pos;
-						String lemma = row.lemma;
-						
-						String namedEntityFeatures = UNUSED;
-						if (writeNamedEntity && (row.entities != null)) {
-							StringBuilder neBuilder = new StringBuilder();
-							ArrayList<String> ne = row.entities;
-							for (int i = 0; i < ne.size(); ) {
-								String entry = ne.get(i);
-								neBuilder.append(entry);
-								if (++i < ne.size()) {
-									neBuilder.append(pConllSeparator);
-								}
-							}
-							namedEntityFeatures = neBuilder.toString();
-						}
-						
-						if (pTagAllAs != null && !pTagAllAs.isEmpty()) {
-							namedEntityFeatures = namedEntityFeatures.replaceAll("-[\\w_]+", "-" + pTagAllAs);
-						}
-						
-						conllWriter.printf("%s%s%s%s%s%s%s%n", row.token.getCoveredText(), pConllSeparator, pos, pConllSeparator, lemma, pConllSeparator, namedEntityFeatures);
-					}
-					conllWriter.println();
+					int rows = rowFormatter.endSentence();
+					sentences++;
+					if (sentenceIndex != null)
+						sentenceIndex.endSentence(conllWriter, rows);
 				} else {
+					rowFormatter.discardSentence();
 					emptySentences++;
 				}
 			}
@@ -429,11 +822,136 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 				getLogger().info(String.format("Skipped %d empty sentences.", emptySentences));
 			}
 			getLogger().info(String.format("Wrote file with %d tags.", globalEntityCount));
+			statistics.written(sentences, emptySentences, globalEntityCount);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+	
+	/**
+	 * Write the CoNLL file of the document of the given snapshot with the current {@link #PARAM_STRATEGY_INDEX},
+	 * {@link #PARAM_NAMED_ENTITY_COLUMNS} and {@link #PARAM_TAG_ALL_AS}, or once for each of the {@link
+	 * #PARAM_OUTPUT_SPECS}. The output equals the output of {@link #printConllFile(GenericIobEncoder)} for the encoder
+	 * the snapshot was created from.
+	 *
+	 * @param snapshot A snapshot written to the {@link #PARAM_SNAPSHOT_TARGET_LOCATION}.
+	 */
+	public void printConllFile(EncoderSnapshot snapshot) throws IOException {
+		try {
+			startNextCollection();
+		} catch (AnalysisEngineProcessException e) {
+			throw new IOException(e);
+		}
+		for (Output output : outputs) {
+			printConllFile(snapshot, output);
+		}
+		checkOutputFailure();
+	}
+	
+	private void printConllFile(EncoderSnapshot snapshot, Output output) throws IOException {
+		GenericIobEncoder.Strategy strategy = output.spec.getStrategy();
+		int columns = output.spec.getColumns();
+		SentenceIndexBuilder sentenceIndex = getSentenceIndexBuilder(output, snapshot.getName(), filenameSuffix);
+		try (PrintWriter conllWriter = getPrintWriter(output, snapshot.getName(), filenameSuffix, sentenceIndex)) {
+			ConllRowFormatter rowFormatter = new ConllRowFormatter(conllWriter, pConllSeparator, pTagAllAs);
+			ArrayList<String> entities = new ArrayList<>();
+			int sentences = 0;
+			int emptySentences = 0;
+			int globalEntityCount = 0;
+			for (int sentence = 0; sentence < snapshot.getSentenceCount(); sentence++) {
+				int entityCount = 0;
+				for (int token = snapshot.getSentenceBegin(sentence); token < snapshot.getSentenceEnd(sentence); token++) {
+					entities.clear();
+					snapshot.addFeaturesForNColumns(token, strategy, columns, entities);
+					if (!entities.isEmpty() && !OUTSIDE_TAGS.contains(entities.get(0))) {
+						entityCount++;
+					}
+					
+					rowFormatter.text(snapshot.getText(token));
+					rowFormatter.column(getColumnValue(writePos, snapshot.getPos(token)));
+					rowFormatter.column(getColumnValue(writeChunk, snapshot.getLemma(token)));
+					printNamedEntityFeatures(rowFormatter, entities);
+					rowFormatter.endRow();
+				}
+				
+				if (!pFilterEmptySentences || entityCount > 0) {
+					globalEntityCount += entityCount;
+					int rows = rowFormatter.endSentence();
+					sentences++;
+					if (sentenceIndex != null)
+						sentenceIndex.endSentence(conllWriter, rows);
+				} else {
+					rowFormatter.discardSentence();
+					emptySentences++;
+				}
+			}
+			statistics.written(sentences, emptySentences, globalEntityCount);
 		}
 	}
 	
+	/**
+	 * @return The given value of the POS or lemma column, or {@link #UNUSED} if the column is not written or the value
+	 * is missing.
+	 */
+	static String getColumnValue(boolean write, String value) {
+		if (write && !Strings.isNullOrEmpty(value) && !value.equals("null"))
+			return value;
+		return UNUSED;
+	}
+	
+	/**
+	 * Append the given features as the named entity column of the current row, joined by the {@link
+	 * #PARAM_CONLL_SEPARATOR} with all tags replaced by {@link #PARAM_TAG_ALL_AS} if set, or {@link #UNUSED} if named
+	 * entities are not written.
+	 */
+	void printNamedEntityFeatures(ConllRowFormatter rowFormatter, List<String> entities) {
+		if (writeNamedEntity) {
+			rowFormatter.labels(entities);
+		} else {
+			rowFormatter.column(UNUSED);
+		}
+	}
+	
+	/**
+	 * Store an {@link EncoderSnapshot} of the given encoder in the {@link #PARAM_SNAPSHOT_TARGET_LOCATION}.
+	 */
+	<T extends Annotation> void printSnapshot(GenericIobEncoder<T> hierarchicalBioEncoder) throws IOException {
+		String fileName = getFileName(hierarchicalBioEncoder.getMergedCas());
+		EncoderSnapshot.create(hierarchicalBioEncoder, fileName).write(new File(pSnapshotTargetLocation, fileName + EncoderSnapshot.EXTENSION));
+	}
+	
+	/**
+	 * Export the sentences written by {@link #printConllFile(GenericIobEncoder)} to the {@link #tensorExporter}, with
+	 * one label column for each of the {@link #PARAM_NAMED_ENTITY_COLUMNS}, holding the tag of the selected hierarchy
+	 * level regardless of further features such as {@link #PARAM_USE_TTLAB_CONLL_FEATURES}. Sentences without any tags
+	 * are omitted if {@link #PARAM_FILTER_EMPTY_SENTENCES} is set.
+	 */
+	<T extends Annotation> void printTensorFiles(GenericIobEncoder<T> hierarchicalBioEncoder) throws IOException {
+		JCas aJCas = hierarchicalBioEncoder.getMergedCas();
+		GenericIobEncoder.Strategy strategy = GenericIobEncoder.Strategy.byIndex(pEncoderStrategyIndex);
+		int columns = Math.max(1, pNamedEntityColumns);
+		TensorExporter.Document document = tensorExporter.newDocument(aJCas.getDocumentText(), columns);
+		ArrayList<String> tags = new ArrayList<>();
+		for (Sentence sentence : select(aJCas, Sentence.class)) {
+			List<Token> sentenceTokens = selectCovered(Token.class, sentence);
+			boolean hasEntity = !pFilterEmptySentences;
+			for (int i = 0; i < sentenceTokens.size() && !hasEntity; i++) {
+				tags.clear();
+				hierarchicalBioEncoder.addTagsForNColumns(hierarchicalBioEncoder.getTokenOrdinal(sentenceTokens.get(i)), strategy, 1, tags);
+				hasEntity = !tags.isEmpty() && !OUTSIDE_TAGS.contains(tags.get(0));
+			}
+			if (hasEntity) {
+				document.addSentence();
+				for (Token token : sentenceTokens) {
+					tags.clear();
+					hierarchicalBioEncoder.addTagsForNColumns(hierarchicalBioEncoder.getTokenOrdinal(token), strategy, columns, tags);
+					document.addToken(token.getBegin(), token.getEnd(), tags);
+				}
+			}
+		}
+		document.write(getFileName(aJCas));
+	}
+	
 	private boolean hasIaaView(JCas aJCas) throws CASException {
 		return Iterators.tryFind(aJCas.getViewIterator(), p -> p.getViewName().equals("IAA")).isPresent();
 	}
@@ -444,24 +962,123 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 				.filter(fullName -> {
 					// If whitelisting (true), the name must be in the set; if blacklisting (false), it must not be in the set
 					String viewName = StringUtils.substringAfterLast(fullName.trim(), "/");
-					return StringUtils.isNotEmpty(viewName) && pAnnotatorRelation == ImmutableSet.copyOf(pAnnotatorList).contains(viewName);
+					return StringUtils.isNotEmpty(viewName) && pAnnotatorRelation == annotatorNames.contains(viewName);
 				})
 				.collect(Collectors.toCollection(LinkedHashSet::new));
 		return ImmutableSet.copyOf(validViewNames);
 	}
 	
+	/**
+	 * Open a writer for the CoNLL file of the given document in the first of the {@link #outputs}, or for its split of
+	 * the {@link DatasetSink} of that output. The parent
+	 * directories are created by {@link FileUtils#openOutputStream(File)} as needed, the written bytes are added to the
+	 * {@link WriterStatistics} once the writer is closed.
+	 * <p>
+	 * If {@link #PARAM_COMPRESS} is set, each document is compressed as a separate GZIP member. Members appended to the
+	 * same dataset split form a valid multi-member GZIP file, which is read as a whole by {@link
+	 * java.util.zip.GZIPInputStream} and by the gzip tool.
+	 * </p>
+	 */
 	@NotNull
 	PrintWriter getPrintWriter(JCas aJCas, String aExtension) throws IOException {
-		String relativePath = getFileName(aJCas);
-		Files.createDirectories(Paths.get(targetLocation));
-		File file = new File(targetLocation, relativePath + aExtension);
+		return getPrintWriter(aJCas, aExtension, null);
+	}
+	
+	/**
+	 * Open a writer for the CoNLL file of the given document, see {@link #getPrintWriter(JCas, String)}.
+	 *
+	 * @param sentenceIndex If not null, the builder that tracks the offsets of the written sentences.
+	 */
+	@NotNull
+	PrintWriter getPrintWriter(JCas aJCas, String aExtension, SentenceIndexBuilder sentenceIndex) throws IOException {
+		return getPrintWriter(outputs.get(0), getFileName(aJCas), aExtension, sentenceIndex);
+	}
+	
+	/**
+	 * Open a writer for the CoNLL file with the given name in the given output, see {@link #getPrintWriter(JCas,
+	 * String)}.
+	 *
+	 * @param sentenceIndex If not null, the builder that tracks the offsets of the written sentences.
+	 */
+	@NotNull
+	private PrintWriter getPrintWriter(Output output, String fileName, String aExtension, SentenceIndexBuilder sentenceIndex) throws IOException {
+		if (output.datasetSink != null) {
+			return new PrintWriter(new OutputStreamWriter(getCompressedOutputStream(getCountingOutputStream(output.datasetSink.open(fileName))), targetEncoding));
+		}
+		File file = getOutputFile(output, fileName, aExtension);
 		if (!targetOverwrite && file.exists()) {
 			throw new IOException(String.format("File '%s' already exists!\n", file.getAbsolutePath()));
 		}
-		return new PrintWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), targetEncoding));
+		OutputStream outputStream = getCompressedOutputStream(getCountingOutputStream(openOutputStream(file)));
+		if (sentenceIndex != null)
+			outputStream = sentenceIndex.track(outputStream);
+		return new PrintWriter(new OutputStreamWriter(outputStream, targetEncoding));
+	}
+	
+	private File getOutputFile(Output output, String fileName, String aExtension) {
+		return new File(output.targetLocation, fileName + aExtension + getCompressionExtension());
+	}
+	
+	/**
+	 * @return A new builder for the sentence index of the CoNLL file of the given document in the first of the {@link
+	 * #outputs}, or null if {@link #PARAM_WRITE_SENTENCE_INDEX} is not set or not supported with the current
+	 * configuration.
+	 */
+	SentenceIndexBuilder getSentenceIndexBuilder(JCas aJCas, String aExtension) {
+		return getSentenceIndexBuilder(outputs.get(0), getFileName(aJCas), aExtension);
+	}
+	
+	private SentenceIndexBuilder getSentenceIndexBuilder(Output output, String fileName, String aExtension) {
+		if (!pWriteSentenceIndex || pCompress || output.datasetSink != null)
+			return null;
+		return new SentenceIndexBuilder(new File(getOutputFile(output, fileName, aExtension).getPath() + IndexedConllFile.INDEX_EXTENSION));
+	}
+	
+	/**
+	 * @return {@link #GZIP_EXTENSION} if {@link #PARAM_COMPRESS} is set, the empty string otherwise.
+	 */
+	String getCompressionExtension() {
+		return pCompress ? GZIP_EXTENSION : "";
+	}
+	
+	/**
+	 * Wrap the given stream in a {@link GZIPOutputStream} with the configured level and buffer size, if {@link
+	 * #PARAM_COMPRESS} is set.
+	 */
+	private OutputStream getCompressedOutputStream(OutputStream outputStream) throws IOException {
+		if (!pCompress)
+			return outputStream;
+		return new GZIPOutputStream(outputStream, pCompressionBufferSize) {
+			{
+				def.setLevel(pCompressionLevel);
+			}
+		};
+	}
+	
+	/**
+	 * Open the given file, either directly or through the {@link #outputStage}.
+	 */
+	private OutputStream openOutputStream(File file) throws IOException {
+		if (outputStage != null)
+			return outputStage.open(file);
+		return FileUtils.openOutputStream(file);
 	}
 	
-	private String getFileName(JCas aJCas) {
+	private OutputStream getCountingOutputStream(OutputStream outputStream) {
+		return new CountingOutputStream(outputStream) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				statistics.bytesWritten.add(resetByteCount());
+			}
+		};
+	}
+	
+	/**
+	 * @return The name of the output files of the given document without their extension, i.e. its document id or
+	 * the last segment of its URI, without the ".xmi" extension.
+	 */
+	public static String getFileName(JCas aJCas) {
 		DocumentMetaData meta = DocumentMetaData.get(aJCas);
 		String path = meta.getDocumentId() == null || meta.getDocumentId().isEmpty() ? StringUtils.substringAfterLast(meta.getDocumentUri(), "/") : meta.getDocumentId();
 		return path.replaceAll("\\.xmi", "");
@@ -472,8 +1089,7 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 		if (pRawTargetLocation == null) {
 			return new PrintWriter(new CloseShieldOutputStream(System.out));
 		} else {
-			Files.createDirectories(Paths.get(pRawTargetLocation));
-			return new PrintWriter(getRawOutputStream(getFileName(aJCas), aExtension));
+			return new PrintWriter(getCompressedOutputStream(getCountingOutputStream(getRawOutputStream(getFileName(aJCas), aExtension + getCompressionExtension()))));
 		}
 	}
 	
@@ -484,14 +1100,41 @@ public class ConllBIO2003Writer extends JCasAnnotator_ImplBase {
 		if (!targetOverwrite && file.exists()) {
 			throw new IOException(String.format("File '%s' already exists!\n", file.getAbsolutePath()));
 		}
-		return FileUtils.openOutputStream(file);
+		return openOutputStream(file);
 	}
 	
-	static final class Row {
-		Token token;
-		String lemma;
-		String pos;
-		ArrayList<String> entities;
+	/**
+	 * @param datasetLocation The dataset directory of the output, or null if no dataset is written.
+	 */
+	private Output createOutput(OutputSpec spec, File targetLocation, File datasetLocation) throws IOException {
+		DatasetSink datasetSink = null;
+		if (datasetLocation != null) {
+			datasetSink = SHARED_DATASET_SINKS.acquire(datasetLocation,
+					Arrays.asList(spec, ImmutableSet.copyOf(pDatasetTestIds), filenameSuffix + getCompressionExtension(), targetEncoding),
+					() -> new DatasetSink(datasetLocation, ImmutableSet.copyOf(pDatasetTestIds), filenameSuffix + getCompressionExtension()));
+		}
+		return new Output(spec, targetLocation, datasetLocation, datasetSink);
+	}
+	
+	/**
+	 * The target of the CoNLL files of one {@link OutputSpec}.
+	 */
+	private static final class Output {
+		final OutputSpec spec;
+		final File targetLocation;
+		final File datasetLocation;
+		
+		/**
+		 * The training and test file, if {@link #PARAM_DATASET_LOCATION} is set, null otherwise.
+		 */
+		final DatasetSink datasetSink;
+		
+		Output(OutputSpec spec, File targetLocation, File datasetLocation, DatasetSink datasetSink) {
+			this.spec = spec;
+			this.targetLocation = targetLocation;
+			this.datasetLocation = datasetLocation;
+			this.datasetSink = datasetSink;
+		}
 	}
 	
 	
@@ -0,0 +1,147 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Formats the rows of one sentence of a CoNLL file into a reused character buffer, instead of a {@link
+ * PrintWriter#printf(String, Object...)} for each row. Token texts are copied from the document text by their offsets
+ * and the labels are copied from the strings shared by the encoder, so a row does not allocate any objects.
+ * <p>
+ * A sentence is written to the underlying writer by {@link #endSentence()}, or dropped by {@link #discardSentence()},
+ * e.g. if it turns out to contain no named entities. A formatter is used by one thread for one file.
+ * </p>
+ */
+final class ConllRowFormatter {
+	
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	private static final Pattern TAG_PATTERN = Pattern.compile("-[\\w_]+");
+	private static final Pattern TAG_CHARACTER_PATTERN = Pattern.compile("[\\w-]");
+	
+	private final PrintWriter writer;
+	private final String separator;
+	private final String tagReplacement;
+	private final boolean tagPerLabel;
+	private final HashMap<String, String> taggedLabels = new HashMap<>();
+	private final StringBuilder joinedLabels = new StringBuilder();
+	private char[] buffer = new char[8192];
+	private int length = 0;
+	private int rows = 0;
+	
+	/**
+	 * @param writer    The writer of the CoNLL file.
+	 * @param separator The column separator.
+	 * @param tagAllAs  If not null or empty, the tag to replace the type of all labels by, see {@link
+	 *                  ConllBIO2003Writer#PARAM_TAG_ALL_AS}.
+	 */
+	ConllRowFormatter(PrintWriter writer, String separator, String tagAllAs) {
+		this.writer = writer;
+		this.separator = separator;
+		this.tagReplacement = tagAllAs == null || tagAllAs.isEmpty() ? null : "-" + tagAllAs;
+		// The tags may be replaced label by label, as long as no match can span a separator
+		this.tagPerLabel = !separator.isEmpty() && !TAG_CHARACTER_PATTERN.matcher(separator).find();
+	}
+	
+	/**
+	 * Start a row with the text between the given offsets of the given document text.
+	 */
+	void text(String documentText, int begin, int end) {
+		ensureCapacity(end - begin);
+		documentText.getChars(begin, end, buffer, length);
+		length += end - begin;
+	}
+	
+	/**
+	 * Start a row with the given text.
+	 */
+	void text(String text) {
+		append(text);
+	}
+	
+	/**
+	 * Append the given value as the next column of the current row.
+	 */
+	void column(String value) {
+		append(separator);
+		append(value);
+	}
+	
+	/**
+	 * Append the given labels as the next column of the current row, joined by the separator and with their tags
+	 * replaced, if a tag was given.
+	 */
+	void labels(List<String> labels) {
+		append(separator);
+		if (tagReplacement == null) {
+			appendJoined(labels);
+		} else if (tagPerLabel) {
+			for (int i = 0; i < labels.size(); i++) {
+				if (i > 0)
+					append(separator);
+				append(taggedLabels.computeIfAbsent(labels.get(i), label -> TAG_PATTERN.matcher(label).replaceAll(tagReplacement)));
+			}
+		} else {
+			joinedLabels.setLength(0);
+			for (int i = 0; i < labels.size(); i++) {
+				if (i > 0)
+					joinedLabels.append(separator);
+				joinedLabels.append(labels.get(i));
+			}
+			append(TAG_PATTERN.matcher(joinedLabels).replaceAll(tagReplacement));
+		}
+	}
+	
+	/**
+	 * End the current row.
+	 */
+	void endRow() {
+		append(LINE_SEPARATOR);
+		rows++;
+	}
+	
+	/**
+	 * Write the rows of the current sentence and the empty line following them to the writer.
+	 *
+	 * @return The number of rows of the sentence.
+	 */
+	int endSentence() {
+		append(LINE_SEPARATOR);
+		writer.write(buffer, 0, length);
+		return discardSentence();
+	}
+	
+	/**
+	 * Drop the rows of the current sentence.
+	 *
+	 * @return The number of rows of the sentence.
+	 */
+	int discardSentence() {
+		int sentenceRows = rows;
+		length = 0;
+		rows = 0;
+		return sentenceRows;
+	}
+	
+	private void appendJoined(List<String> labels) {
+		for (int i = 0; i < labels.size(); i++) {
+			if (i > 0)
+				append(separator);
+			append(labels.get(i));
+		}
+	}
+	
+	private void append(String value) {
+		ensureCapacity(value.length());
+		value.getChars(0, value.length(), buffer, length);
+		length += value.length();
+	}
+	
+	private void ensureCapacity(int additional) {
+		if (length + additional > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + additional));
+		}
+	}
+}
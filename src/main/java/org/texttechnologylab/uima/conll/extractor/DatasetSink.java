@@ -0,0 +1,135 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the output of all documents directly into a training and a test file, instead of one file per document.
+ * <p>
+ * Each document is routed by its id: documents whose id is in the set of test ids are appended to the test file, all
+ * other documents to the training file. The streams returned by {@link #open(String)} buffer a single document and
+ * append it as a whole once closed, such that documents formatted by concurrent threads are never interleaved. As
+ * {@link java.io.PrintWriter PrintWriters} swallow the exceptions of their streams, the first failure is kept and
+ * rethrown by {@link #checkFailure()}.
+ * </p><p>
+ * A sink truncates its files when it is created, so all writers of one dataset have to share a single sink. The
+ * {@link ConllBIO2003Writer} shares the sink of a dataset location between its instances by {@link SharedResources},
+ * e.g. between the threads of a {@link org.texttechnologylab.uima.conll.run.ParallelXmiPipeline ParallelXmiPipeline},
+ * and closes it once all of them have completed.
+ * </p>
+ */
+final class DatasetSink implements AutoCloseable {
+	
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	private final ImmutableSet<String> testIds;
+	private final Set<String> seenTestIds = ConcurrentHashMap.newKeySet();
+	private final Split train;
+	private final Split test;
+	private final AtomicReference<IOException> failure = new AtomicReference<>();
+	
+	/**
+	 * @param datasetLocation The directory to write the training and test file to.
+	 * @param testIds         The ids of the documents that belong to the test split.
+	 * @param extension       The extension of both files, e.g. ".conll".
+	 */
+	DatasetSink(File datasetLocation, Set<String> testIds, String extension) throws IOException {
+		this.testIds = ImmutableSet.copyOf(testIds);
+		this.train = new Split(new File(datasetLocation, "train" + extension));
+		try {
+			this.test = new Split(new File(datasetLocation, "test" + extension));
+		} catch (IOException e) {
+			train.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return A stream for the content of the document with the given id, which is appended to its split once the
+	 * stream is closed.
+	 */
+	OutputStream open(String documentId) {
+		boolean isTest = testIds.contains(documentId);
+		if (isTest)
+			seenTestIds.add(documentId);
+		Split split = isTest ? test : train;
+		return new ByteArrayOutputStream(8192) {
+			private boolean appended = false;
+			
+			@Override
+			public void close() throws IOException {
+				if (!appended) {
+					appended = true;
+					try {
+						split.append(buf, count);
+					} catch (IOException e) {
+						failure.compareAndSet(null, e);
+						throw e;
+					}
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @throws IOException The first failure to append a document.
+	 */
+	void checkFailure() throws IOException {
+		IOException exception = failure.get();
+		if (exception != null)
+			throw new IOException("Writing the dataset failed.", exception);
+	}
+	
+	long getTrainDocuments() {
+		return train.documents.sum();
+	}
+	
+	long getTestDocuments() {
+		return test.documents.sum();
+	}
+	
+	/**
+	 * @return The test ids for which no document has been written.
+	 */
+	Set<String> getMissingTestIds() {
+		return Sets.difference(testIds, seenTestIds).immutableCopy();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			train.close();
+		} finally {
+			test.close();
+		}
+	}
+	
+	private static final class Split {
+		private final OutputStream outputStream;
+		private final LongAdder documents = new LongAdder();
+		
+		Split(File file) throws IOException {
+			this.outputStream = new BufferedOutputStream(FileUtils.openOutputStream(file), BUFFER_SIZE);
+		}
+		
+		synchronized void append(byte[] content, int length) throws IOException {
+			outputStream.write(content, 0, length);
+			documents.increment();
+		}
+		
+		synchronized void close() throws IOException {
+			outputStream.close();
+		}
+	}
+}
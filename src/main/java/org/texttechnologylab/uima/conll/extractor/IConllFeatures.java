@@ -1,19 +1,15 @@
 package org.texttechnologylab.uima.conll.extractor;
 
-import java.util.ArrayList;
+import java.util.List;
 
 public interface IConllFeatures {
-	void name(String name);
-	
 	String name();
 	
-	void prependTag(String tag);
-	
 	String getPrependTag();
 	
 	boolean isNameInvalid();
 	
-	ArrayList<String> build();
+	List<String> build();
 	
 	boolean isOut();
 }
@@ -0,0 +1,158 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Random access to the sentences of a CoNLL file by their index, using the sentence index written by {@link
+ * ConllBIO2003Writer} if {@link ConllBIO2003Writer#PARAM_WRITE_SENTENCE_INDEX} is set.
+ * <p>
+ * Both the CoNLL file and its index are memory-mapped, such that sentences are only read from disk when accessed.
+ * Only uncompressed CoNLL files of less than 2 GiB are supported. Instances may be shared by multiple threads, as all
+ * reads use absolute positions or duplicates of the mapped buffers.
+ * </p>
+ */
+public class IndexedConllFile implements Closeable {
+	
+	/**
+	 * The extension of the index file, appended to the name of the CoNLL file.
+	 */
+	public static final String INDEX_EXTENSION = ".idx";
+	
+	static final int MAGIC = 0x43494458;
+	static final int HEADER_BYTES = 2 * Integer.BYTES;
+	static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	private final FileChannel conllChannel;
+	private final MappedByteBuffer conll;
+	private final ByteBuffer index;
+	private final Charset charset;
+	private final int sentenceCount;
+	
+	/**
+	 * Open the given CoNLL file and its index file, which has the same name with the {@link #INDEX_EXTENSION}.
+	 *
+	 * @param conllFile The CoNLL file.
+	 * @param charset   The encoding of the CoNLL file.
+	 */
+	public IndexedConllFile(File conllFile, Charset charset) throws IOException {
+		this(conllFile, new File(conllFile.getPath() + INDEX_EXTENSION), charset);
+	}
+	
+	public IndexedConllFile(File conllFile, File indexFile, Charset charset) throws IOException {
+		this.charset = charset;
+		try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			this.index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size()).order(BYTE_ORDER);
+		}
+		if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC)
+			throw new IOException(String.format("'%s' is not a sentence index.", indexFile));
+		this.sentenceCount = index.getInt(Integer.BYTES);
+		if (index.capacity() != HEADER_BYTES + (long) sentenceCount * ENTRY_BYTES)
+			throw new IOException(String.format("The sentence index '%s' is truncated.", indexFile));
+		
+		this.conllChannel = FileChannel.open(conllFile.toPath(), StandardOpenOption.READ);
+		try {
+			if (conllChannel.size() > Integer.MAX_VALUE)
+				throw new IOException(String.format("'%s' is too large to be mapped.", conllFile));
+			this.conll = conllChannel.map(FileChannel.MapMode.READ_ONLY, 0, conllChannel.size());
+		} catch (IOException e) {
+			conllChannel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return The number of sentences.
+	 */
+	public int size() {
+		return sentenceCount;
+	}
+	
+	/**
+	 * @return The number of tokens of the sentence with the given index.
+	 */
+	public int getTokenCount(int sentence) {
+		return index.getInt(getEntryPosition(sentence) + Long.BYTES + Integer.BYTES);
+	}
+	
+	/**
+	 * @return A read-only view of the bytes of the sentence with the given index, including the trailing empty line.
+	 */
+	public ByteBuffer getSentenceBytes(int sentence) {
+		int position = getEntryPosition(sentence);
+		int offset = Math.toIntExact(index.getLong(position));
+		int length = index.getInt(position + Long.BYTES);
+		ByteBuffer view = conll.asReadOnlyBuffer();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice();
+	}
+	
+	/**
+	 * @return The rows of the sentence with the given index, each terminated by a line separator, including the
+	 * trailing empty line.
+	 */
+	public String getSentence(int sentence) {
+		return charset.decode(getSentenceBytes(sentence)).toString();
+	}
+	
+	/**
+	 * Group the sentences by their length.
+	 *
+	 * @param bucketWidth The number of different token counts per bucket.
+	 * @return The indices of the sentences for each bucket, in ascending order, by the bucket number {@code tokenCount
+	 * / bucketWidth}.
+	 */
+	public TreeMap<Integer, int[]> getLengthBuckets(int bucketWidth) {
+		if (bucketWidth < 1)
+			throw new IllegalArgumentException("The bucket width must be positive!");
+		TreeMap<Integer, int[]> buckets = new TreeMap<>();
+		TreeMap<Integer, Integer> bucketSizes = new TreeMap<>();
+		for (int i = 0; i < sentenceCount; i++) {
+			bucketSizes.merge(getTokenCount(i) / bucketWidth, 1, Integer::sum);
+		}
+		bucketSizes.forEach((bucket, bucketSize) -> buckets.put(bucket, new int[bucketSize]));
+		int[] filled = new int[bucketSizes.isEmpty() ? 0 : bucketSizes.lastKey() + 1];
+		for (int i = 0; i < sentenceCount; i++) {
+			int bucket = getTokenCount(i) / bucketWidth;
+			buckets.get(bucket)[filled[bucket]++] = i;
+		}
+		return buckets;
+	}
+	
+	/**
+	 * @return The indices of all sentences with at least {@code minTokens} and at most {@code maxTokens} tokens, in
+	 * ascending order.
+	 */
+	public int[] getSentencesByLength(int minTokens, int maxTokens) {
+		int[] sentences = new int[sentenceCount];
+		int count = 0;
+		for (int i = 0; i < sentenceCount; i++) {
+			int tokenCount = getTokenCount(i);
+			if (tokenCount >= minTokens && tokenCount <= maxTokens)
+				sentences[count++] = i;
+		}
+		return Arrays.copyOf(sentences, count);
+	}
+	
+	private int getEntryPosition(int sentence) {
+		if (sentence < 0 || sentence >= sentenceCount)
+			throw new IndexOutOfBoundsException(String.format("Sentence %d is out of bounds for %d sentences!", sentence, sentenceCount));
+		return HEADER_BYTES + sentence * ENTRY_BYTES;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		conllChannel.close();
+	}
+}
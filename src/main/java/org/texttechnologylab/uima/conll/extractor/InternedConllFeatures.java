@@ -0,0 +1,226 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, shared {@link IConllFeatures} flyweights, interned in a {@link Vocabulary} by name, prepended tag and
+ * flags.
+ * <p>
+ * The names are stripped of their IOB tags only once per distinct raw name and the tagged labels "B-X" and "I-X" as
+ * well as the result of {@link #build()} are precomputed for each entry. The abstract and metaphor flags of the
+ * {@link TTLabConllFeatures} are packed into the bits of an int, see {@link #ABSTRACT}, {@link #CONCRETE},
+ * {@link #METAPHOR} and {@link #DIRECT}. Thus, once all labels of a corpus have been seen, looking up the features of
+ * an entity-token pair allocates nothing.
+ * </p><p>
+ * A vocabulary only grows with the distinct names seen by its owner, e.g. the encoders of one writer, and is released
+ * together with it. As instances are shared, they cannot be renamed or tagged, use {@link Vocabulary#of(String, int)},
+ * {@link #begin()} and {@link #inside()} instead.
+ * </p>
+ */
+public final class InternedConllFeatures implements IConllFeatures {
+	
+	private static final int ABSTRACT_SET = 0b0001;
+	private static final int ABSTRACT_VALUE = 0b0010;
+	private static final int METAPHOR_SET = 0b0100;
+	private static final int METAPHOR_VALUE = 0b1000;
+	private static final int FLAG_COMBINATIONS = 16;
+	
+	/**
+	 * No flags set, equal to a {@link SingleConllFeatures} or a {@link TTLabConllFeatures} with unset flags.
+	 */
+	public static final int NO_FLAGS = 0;
+	public static final int ABSTRACT = ABSTRACT_SET | ABSTRACT_VALUE;
+	public static final int CONCRETE = ABSTRACT_SET;
+	public static final int METAPHOR = METAPHOR_SET | METAPHOR_VALUE;
+	public static final int DIRECT = METAPHOR_SET;
+	
+	private static final String BEGIN_TAG = "B-";
+	private static final String INSIDE_TAG = "I-";
+	
+	/**
+	 * The empty features "O" without any flags, which are part of every {@link Vocabulary}.
+	 */
+	public static final InternedConllFeatures EMPTY = new Entry("O").untagged[NO_FLAGS];
+	
+	private final String name;
+	private final String prependTag;
+	private final int flags;
+	private final List<String> built;
+	private final boolean isOut;
+	private final Entry entry;
+	
+	private InternedConllFeatures(Entry entry, String prependTag, int flags) {
+		this.entry = entry;
+		this.name = entry.name;
+		this.prependTag = prependTag;
+		this.flags = flags;
+		this.isOut = name.isEmpty() || name.equals("O");
+		
+		ArrayList<String> built = new ArrayList<>(3);
+		built.add(prependTag.isEmpty() ? name : prependTag + name);
+		if ((flags & ABSTRACT_SET) != 0)
+			built.add((flags & ABSTRACT_VALUE) != 0 ? "<ABSTRACT>" : "<CONCRETE>");
+		if ((flags & METAPHOR_SET) != 0)
+			built.add((flags & METAPHOR_VALUE) != 0 ? "<METAPHOR>" : "<DIRECT>");
+		this.built = Collections.unmodifiableList(built);
+	}
+	
+	public static int abstractFlag(boolean isAbstract) {
+		return isAbstract ? ABSTRACT : CONCRETE;
+	}
+	
+	public static int metaphorFlag(boolean isMetaphor) {
+		return isMetaphor ? METAPHOR : DIRECT;
+	}
+	
+	/**
+	 * Remove all IOB tags "B-" and "I-" from the given name. Equivalent to {@code name.replaceAll("([IB]-)*", "")}.
+	 */
+	public static String stripTags(String name) {
+		if (name.indexOf('-') < 0)
+			return name;
+		
+		StringBuilder stringBuilder = null;
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if ((c == 'B' || c == 'I') && i + 1 < length && name.charAt(i + 1) == '-') {
+				if (stringBuilder == null) {
+					stringBuilder = new StringBuilder(length);
+					stringBuilder.append(name, 0, i);
+				}
+				i++;
+			} else if (stringBuilder != null) {
+				stringBuilder.append(c);
+			}
+		}
+		return stringBuilder == null ? name : stringBuilder.toString();
+	}
+	
+	private static int normalize(int flags) {
+		if ((flags & ABSTRACT_SET) == 0)
+			flags &= ~ABSTRACT_VALUE;
+		if ((flags & METAPHOR_SET) == 0)
+			flags &= ~METAPHOR_VALUE;
+		return flags & (FLAG_COMBINATIONS - 1);
+	}
+	
+	/**
+	 * @return These features with the tag "B-".
+	 */
+	public InternedConllFeatures begin() {
+		return entry.begin[flags];
+	}
+	
+	/**
+	 * @return These features with the tag "I-".
+	 */
+	public InternedConllFeatures inside() {
+		return entry.inside[flags];
+	}
+	
+	/**
+	 * @return These features without any tag.
+	 */
+	public InternedConllFeatures untagged() {
+		return entry.untagged[flags];
+	}
+	
+	public int getFlags() {
+		return flags;
+	}
+	
+	@Override
+	public String name() {
+		return name;
+	}
+	
+	@Override
+	public String getPrependTag() {
+		return prependTag;
+	}
+	
+	@Override
+	public boolean isNameInvalid() {
+		return name.isEmpty();
+	}
+	
+	/**
+	 * @return A shared, unmodifiable list.
+	 */
+	@Override
+	public List<String> build() {
+		return built;
+	}
+	
+	@Override
+	public boolean isOut() {
+		return isOut;
+	}
+	
+	@Override
+	public String toString() {
+		return built.toString();
+	}
+	
+	/**
+	 * A thread-safe table of the features of each distinct raw name.
+	 */
+	public static final class Vocabulary {
+		private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+		
+		public Vocabulary() {
+			entries.put(EMPTY.name, EMPTY.entry);
+		}
+		
+		/**
+		 * Get the untagged features for the given name and flags. Any IOB tags in the name are removed.
+		 *
+		 * @param name  The raw name of the features, may be null.
+		 * @param flags A combination of {@link InternedConllFeatures#ABSTRACT} or {@link InternedConllFeatures#CONCRETE}
+		 *              and {@link InternedConllFeatures#METAPHOR} or {@link InternedConllFeatures#DIRECT}.
+		 * @return The features instance shared by all users of this vocabulary.
+		 */
+		public InternedConllFeatures of(String name, int flags) {
+			if (name == null)
+				name = "";
+			Entry entry = entries.get(name);
+			if (entry == null) {
+				entry = entries.computeIfAbsent(name, Entry::new);
+			}
+			return entry.untagged[normalize(flags)];
+		}
+		
+		/**
+		 * @return The number of distinct raw names in this vocabulary.
+		 */
+		public int size() {
+			return entries.size();
+		}
+	}
+	
+	/**
+	 * All features of a raw name, indexed by their flags.
+	 */
+	private static final class Entry {
+		final String name;
+		final InternedConllFeatures[] untagged = new InternedConllFeatures[FLAG_COMBINATIONS];
+		final InternedConllFeatures[] begin = new InternedConllFeatures[FLAG_COMBINATIONS];
+		final InternedConllFeatures[] inside = new InternedConllFeatures[FLAG_COMBINATIONS];
+		
+		Entry(String rawName) {
+			this.name = stripTags(rawName);
+			for (int flags = 0; flags < FLAG_COMBINATIONS; flags++) {
+				int normalized = normalize(flags);
+				if (normalized != flags)
+					continue;
+				untagged[flags] = new InternedConllFeatures(this, "", flags);
+				begin[flags] = new InternedConllFeatures(this, BEGIN_TAG, flags);
+				inside[flags] = new InternedConllFeatures(this, INSIDE_TAG, flags);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Writes primitive arrays in the NumPy {@code .npy} format, version 1.0, such that they can be loaded or memory-mapped
+ * with {@code numpy.load(path, mmap_mode='r')}.
+ * <p>
+ * The data is written in C order and little endian, after a header which is padded to a multiple of 64 bytes.
+ * </p>
+ */
+final class NpyArrays {
+	
+	private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0};
+	private static final int ALIGNMENT = 64;
+	
+	private NpyArrays() {
+	}
+	
+	/**
+	 * Write the first {@code product(shape)} values of the given array as a 32 bit integer array.
+	 */
+	static void write(File file, int[] data, int... shape) throws IOException {
+		int length = getLength(shape);
+		ByteBuffer buffer = allocate("<i4", Integer.BYTES * length, shape);
+		buffer.asIntBuffer().put(data, 0, length);
+		write(file, buffer);
+	}
+	
+	/**
+	 * Write the first {@code product(shape)} values of the given array as a 64 bit integer array.
+	 */
+	static void write(File file, long[] data, int... shape) throws IOException {
+		int length = getLength(shape);
+		ByteBuffer buffer = allocate("<i8", Long.BYTES * length, shape);
+		buffer.asLongBuffer().put(data, 0, length);
+		write(file, buffer);
+	}
+	
+	/**
+	 * @return The header of an array with the given type and shape, including the magic string and the version.
+	 */
+	static byte[] getHeader(String descr, int... shape) {
+		String shapeString = shape.length == 1
+				? String.format("(%d,)", shape[0])
+				: Arrays.stream(shape).mapToObj(Integer::toString).collect(Collectors.joining(", ", "(", ")"));
+		StringBuilder header = new StringBuilder(String.format("{'descr': '%s', 'fortran_order': False, 'shape': %s, }", descr, shapeString));
+		int unpadded = MAGIC.length + Short.BYTES + header.length() + 1;
+		int padding = (ALIGNMENT - unpadded % ALIGNMENT) % ALIGNMENT;
+		for (int i = 0; i < padding; i++) {
+			header.append(' ');
+		}
+		header.append('\n');
+		
+		ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + Short.BYTES + header.length()).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(MAGIC);
+		buffer.putShort((short) header.length());
+		buffer.put(header.toString().getBytes(StandardCharsets.US_ASCII));
+		return buffer.array();
+	}
+	
+	private static int getLength(int[] shape) {
+		int length = 1;
+		for (int dimension : shape) {
+			length = Math.multiplyExact(length, dimension);
+		}
+		return length;
+	}
+	
+	/**
+	 * @return A little endian buffer holding the header, positioned at the start of the data.
+	 */
+	private static ByteBuffer allocate(String descr, int dataBytes, int[] shape) {
+		byte[] header = getHeader(descr, shape);
+		ByteBuffer buffer = ByteBuffer.allocate(header.length + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(header);
+		return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private static void write(File file, ByteBuffer data) throws IOException {
+		try (OutputStream outputStream = FileUtils.openOutputStream(file)) {
+			outputStream.write(data.array(), 0, data.arrayOffset() + data.capacity());
+		}
+	}
+}
@@ -6,11 +6,13 @@ import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.UIMAException;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
 import org.texttechnologylab.uima.conll.iobencoder.TTLabHierarchicalIobEncoder;
 import org.texttechnologylab.uima.conll.iobencoder.TTLabOneColumnPerClassEncoder;
@@ -25,18 +27,41 @@ import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
 public class OneClassPerColumnWriter extends ConllBIO2003Writer {
 	
-	<T extends Annotation> void printConllFile(GenericIobEncoder<T> hierarchicalBioEncoder) {
+	@Override
+	public void initialize(UimaContext context) throws ResourceInitializationException {
+		// Checked before the outputs are opened by the super class
+		Object outputSpecs = context.getConfigParameterValue(PARAM_OUTPUT_SPECS);
+		if (outputSpecs instanceof String[] && ((String[]) outputSpecs).length > 0) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Output specs are not supported by the OneClassPerColumnWriter, as its columns do not depend on the strategy or the number of columns."));
+		}
+		if (context.getConfigParameterValue(PARAM_SNAPSHOT_TARGET_LOCATION) != null) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Encoder snapshots are not supported by the OneClassPerColumnWriter, as they do not contain its class columns."));
+		}
+		super.initialize(context);
+	}
+	
+	@Override
+	public <T extends Annotation> void printConllFile(GenericIobEncoder<T> hierarchicalBioEncoder) throws AnalysisEngineProcessException {
 		JCas aJCas = hierarchicalBioEncoder.getMergedCas();
 		TTLabOneColumnPerClassEncoder lHierarchicalBioEncoder = (TTLabOneColumnPerClassEncoder) hierarchicalBioEncoder;
-		try (PrintWriter conllWriter = getPrintWriter(aJCas, filenameSuffix)) {
+		GenericIobEncoder.Strategy strategy = GenericIobEncoder.Strategy.byIndex(pEncoderStrategyIndex);
+		SentenceIndexBuilder sentenceIndex = getSentenceIndexBuilder(aJCas, filenameSuffix);
+		try (PrintWriter conllWriter = getPrintWriter(aJCas, filenameSuffix, sentenceIndex)) {
 			conllWriter.printf("#text pos lemma %s%n", String.join(pConllSeparator, lHierarchicalBioEncoder.getNamedEntityTypes()));
+			if (sentenceIndex != null)
+				sentenceIndex.skip(conllWriter);
+			ConllRowFormatter rowFormatter = new ConllRowFormatter(conllWriter, pConllSeparator, null);
+			String documentText = aJCas.getDocumentText();
+			ArrayList<String> entities = new ArrayList<>();
+			int sentences = 0;
 			int emptySentences = 0;
 			int totalEntityCount = 0;
 			for (Sentence sentence : select(aJCas, Sentence.class)) {
 				int entityCount = 0;
-				HashMap<Token, Row> ctokens = new LinkedHashMap<>();
 				
-				// Tokens
+				// Tokens, formatted in CONLL 2006 format until the sentence is known to be written
 				List<Token> coveredTokens = selectCovered(Token.class, sentence);
 				for (Token token : coveredTokens) {
 					Iterator<Lemma> iterator = JCasUtil.subiterate(aJCas, Lemma.class, token, true, false).iterator();
@@ -47,59 +72,54 @@ public class OneClassPerColumnWriter extends ConllBIO2003Writer {
 						lemma = token.getLemma();
 					}
 					POS pos = token.getPos();
-					Row row = new Row();
-					row.token = token;
 					
-					row.lemma = UNUSED;
+					String lemmaValue = UNUSED;
 					if (writeChunk && lemma != null) {
-						String lemmaValue = lemma.getValue();
-						if (!Strings.isNullOrEmpty(lemmaValue) && !lemmaValue.equals("null")) {
-							row.lemma = lemmaValue;
-						} else row.lemma = UNUSED;
+						String value = lemma.getValue();
+						if (!Strings.isNullOrEmpty(value) && !value.equals("null")) {
+							lemmaValue = value;
+						}
 					}
 					
-					row.pos = UNUSED;
+					String posValue = UNUSED;
 					if (writePos && pos != null) {
-						String posValue = pos.getPosValue();
-						if (!Strings.isNullOrEmpty(posValue) && !posValue.equals("null")) {
-							row.pos = posValue;
+						String value = pos.getPosValue();
+						if (!Strings.isNullOrEmpty(value) && !value.equals("null")) {
+							posValue = value;
 						}
 					}
 					
-					row.entities = lHierarchicalBioEncoder.getFeatures(token, pEncoderStrategyIndex);
-					if (!row.entities.isEmpty()) {
-						entityCount += row.entities.stream().filter(s -> !s.equals("O")).count();
+					entities.clear();
+					lHierarchicalBioEncoder.addFeaturesForNColumns(lHierarchicalBioEncoder.getTokenOrdinal(token), strategy, 1, entities);
+					for (String entity : entities) {
+						if (!entity.equals("O"))
+							entityCount++;
 					}
 					
-					if (StringUtils.isNotEmpty(row.token.getCoveredText().trim()))
-						ctokens.put(row.token, row);
+					// Skip tokens consisting of whitespace only and trim the others like String#trim
+					int begin = token.getBegin();
+					int end = token.getEnd();
+					while (begin < end && documentText.charAt(begin) <= ' ')
+						begin++;
+					while (end > begin && documentText.charAt(end - 1) <= ' ')
+						end--;
+					if (begin < end) {
+						rowFormatter.text(documentText, begin, end);
+						rowFormatter.column(posValue);
+						rowFormatter.column(lemmaValue);
+						printNamedEntityFeatures(rowFormatter, entities);
+						rowFormatter.endRow();
+					}
 				}
 				
 				// Check for empty sentences if parameter was set
 				if (!pFilterEmptySentences || entityCount > 0) {
-					// Write sentence in CONLL 2006 format
-					for (Row row : ctokens.values()) {
-						String pos = row.pos;
-						String lemma = row.lemma;
-						
-						String namedEntityFeatures = UNUSED;
-						if (writeNamedEntity && (row.entities != null)) {
-							StringBuilder neBuilder = new StringBuilder();
-							ArrayList<String> ne = row.entities;
-							for (int i = 0; i < ne.size(); ) {
-								String entry = ne.get(i);
-								neBuilder.append(entry);
-								if (++i < ne.size()) {
-									neBuilder.append(pConllSeparator);
-								}
-							}
-							namedEntityFeatures = neBuilder.toString();
-						}
-						
-						conllWriter.printf("%s%s%s%s%s%s%s%n", row.token.getCoveredText().trim(), pConllSeparator, pos, pConllSeparator, lemma, pConllSeparator, namedEntityFeatures);
-					}
-					conllWriter.println();
+					int rows = rowFormatter.endSentence();
+					sentences++;
+					if (sentenceIndex != null)
+						sentenceIndex.endSentence(conllWriter, rows);
 				} else {
+					rowFormatter.discardSentence();
 					emptySentences++;
 				}
 				totalEntityCount += entityCount;
@@ -108,8 +128,9 @@ public class OneClassPerColumnWriter extends ConllBIO2003Writer {
 				getLogger().debug(String.format("Skipped %d empty sentences.", emptySentences));
 			}
 			getLogger().debug(String.format("Wrote file with %d tags.", totalEntityCount));
+			getStatistics().written(sentences, emptySentences, totalEntityCount);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new AnalysisEngineProcessException(e);
 		}
 	}
 	
@@ -0,0 +1,81 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+
+import java.util.Objects;
+
+/**
+ * A variant of the CoNLL output of a {@link ConllBIO2003Writer}, given by the {@link GenericIobEncoder.Strategy} to
+ * select the hierarchy levels by and the number of named entity columns.
+ * <p>
+ * Specs are given as "STRATEGY:COLUMNS", where the strategy is either its name or its index, e.g. "TopDown:2" or
+ * "1:2". The output of each spec is written to a subdirectory named "STRATEGY-COLUMNS", e.g. "TopDown-2".
+ * </p>
+ */
+public final class OutputSpec {
+	
+	private final GenericIobEncoder.Strategy strategy;
+	private final int columns;
+	
+	public OutputSpec(GenericIobEncoder.Strategy strategy, int columns) {
+		if (columns < 1)
+			throw new IllegalArgumentException(String.format("Invalid number of named entity columns %d.", columns));
+		this.strategy = strategy;
+		this.columns = columns;
+	}
+	
+	/**
+	 * Parse a spec of the form "STRATEGY:COLUMNS".
+	 *
+	 * @throws IllegalArgumentException If the spec is malformed or the strategy is unknown.
+	 */
+	public static OutputSpec parse(String spec) {
+		int separator = spec.lastIndexOf(':');
+		if (separator < 1 || separator == spec.length() - 1)
+			throw new IllegalArgumentException(String.format("Invalid output spec '%s', expected STRATEGY:COLUMNS.", spec));
+		String strategy = spec.substring(0, separator).trim();
+		try {
+			int columns = Integer.parseInt(spec.substring(separator + 1).trim());
+			if (strategy.chars().allMatch(Character::isDigit))
+				return new OutputSpec(GenericIobEncoder.Strategy.byIndex(Integer.parseInt(strategy)), columns);
+			return new OutputSpec(GenericIobEncoder.Strategy.valueOf(strategy), columns);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IllegalArgumentException(String.format("Invalid output spec '%s': %s", spec, e.getMessage()), e);
+		}
+	}
+	
+	public GenericIobEncoder.Strategy getStrategy() {
+		return strategy;
+	}
+	
+	public int getColumns() {
+		return columns;
+	}
+	
+	/**
+	 * @return The name of the subdirectory the output of this spec is written to.
+	 */
+	public String getName() {
+		return strategy.name() + "-" + columns;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof OutputSpec))
+			return false;
+		OutputSpec that = (OutputSpec) o;
+		return columns == that.columns && strategy == that.strategy;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(strategy, columns);
+	}
+	
+	@Override
+	public String toString() {
+		return strategy.name() + ":" + columns;
+	}
+}
@@ -0,0 +1,116 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records the byte offset, byte length and token count of each sentence while a CoNLL file is written, and writes
+ * them to an index file which is read by {@link IndexedConllFile}.
+ * <p>
+ * The index file starts with the {@link IndexedConllFile#MAGIC magic number} and the number of sentences, followed by
+ * one {@link IndexedConllFile#ENTRY_BYTES entry} for each sentence, all little endian. The offsets refer to the
+ * uncompressed content of the CoNLL file. A sentence spans its rows and the following empty line.
+ * </p>
+ */
+final class SentenceIndexBuilder {
+	
+	private final File indexFile;
+	private IndexStream indexStream;
+	private long[] offsets = new long[64];
+	private int[] tokenCounts = new int[64];
+	private int sentenceCount = 0;
+	private long lastOffset = 0L;
+	
+	/**
+	 * @param indexFile The file to write the index to, once the stream returned by {@link #track(OutputStream)} is
+	 *                  closed.
+	 */
+	SentenceIndexBuilder(File indexFile) {
+		this.indexFile = indexFile;
+	}
+	
+	/**
+	 * @param outputStream The stream the CoNLL file is written to.
+	 * @return A stream which counts the bytes written to the given stream. It does not forward calls to {@link
+	 * OutputStream#flush()}, such that {@link #endSentence(Writer, int)} may flush the writer on each sentence without
+	 * flushing the underlying file. Closing it writes the index file.
+	 */
+	OutputStream track(OutputStream outputStream) {
+		indexStream = new IndexStream(outputStream);
+		return indexStream;
+	}
+	
+	/**
+	 * Record the end of a sentence.
+	 *
+	 * @param writer     The writer on top of the {@link #track(OutputStream) tracked stream}, which is flushed to obtain
+	 *                   the current offset.
+	 * @param tokenCount The number of tokens of the sentence.
+	 */
+	void endSentence(Writer writer, int tokenCount) throws IOException {
+		writer.flush();
+		if (sentenceCount == offsets.length) {
+			offsets = Arrays.copyOf(offsets, 2 * sentenceCount);
+			tokenCounts = Arrays.copyOf(tokenCounts, 2 * sentenceCount);
+		}
+		offsets[sentenceCount] = lastOffset;
+		tokenCounts[sentenceCount] = tokenCount;
+		sentenceCount++;
+		lastOffset = indexStream.getByteCount();
+	}
+	
+	/**
+	 * Exclude everything written so far, e.g. a header, from the next sentence.
+	 *
+	 * @param writer The writer on top of the {@link #track(OutputStream) tracked stream}.
+	 */
+	void skip(Writer writer) throws IOException {
+		writer.flush();
+		lastOffset = indexStream.getByteCount();
+	}
+	
+	private void writeIndex() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(IndexedConllFile.HEADER_BYTES + sentenceCount * IndexedConllFile.ENTRY_BYTES)
+				.order(IndexedConllFile.BYTE_ORDER);
+		buffer.putInt(IndexedConllFile.MAGIC);
+		buffer.putInt(sentenceCount);
+		for (int i = 0; i < sentenceCount; i++) {
+			long end = i + 1 < sentenceCount ? offsets[i + 1] : lastOffset;
+			buffer.putLong(offsets[i]);
+			buffer.putInt(Math.toIntExact(end - offsets[i]));
+			buffer.putInt(tokenCounts[i]);
+		}
+		try (OutputStream outputStream = FileUtils.openOutputStream(indexFile)) {
+			outputStream.write(buffer.array());
+		}
+	}
+	
+	private final class IndexStream extends CountingOutputStream {
+		private boolean closed = false;
+		
+		IndexStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+		
+		@Override
+		public void flush() {
+			// Flushed by close
+		}
+		
+		@Override
+		public void close() throws IOException {
+			super.close();
+			if (!closed) {
+				closed = true;
+				writeIndex();
+			}
+		}
+	}
+}
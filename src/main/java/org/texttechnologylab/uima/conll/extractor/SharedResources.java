@@ -0,0 +1,89 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A registry of the resources shared by all {@link ConllBIO2003Writer} instances writing to the same location.
+ * <p>
+ * Runners like the {@link org.texttechnologylab.uima.conll.run.ParallelXmiPipeline ParallelXmiPipeline} create one
+ * writer for each thread, which nevertheless have to share the run-wide state of their location, e.g. the {@link
+ * WriterStatistics} or the files of a {@link DatasetSink}. The first instance to {@link #acquire(File, Object,
+ * Factory) acquire} a location creates its resource, all other instances receive the same one until it has been {@link
+ * #release(Object) released} by all of them. Only the last instance to release a resource is told so, such that it
+ * is finished, e.g. logged or closed, exactly once.
+ * </p><p>
+ * Each resource is registered with the configuration it was created for. As instances with a different configuration
+ * would write conflicting output to the same location, acquiring the location with another configuration fails.
+ * </p>
+ *
+ * @param <T> The type of the resources.
+ */
+final class SharedResources<T> {
+	
+	/**
+	 * Creates the resource of a location on its first acquisition.
+	 */
+	@FunctionalInterface
+	interface Factory<T> {
+		T create() throws IOException;
+	}
+	
+	private final HashMap<File, Entry<T>> entries = new HashMap<>();
+	
+	/**
+	 * @param location      The location the resource belongs to, which is compared by its canonical path.
+	 * @param configuration The configuration of the acquiring instance, which is compared by {@link
+	 *                      Object#equals(Object)} to the configuration the resource was created for.
+	 * @param factory       Creates the resource, if the location has none yet.
+	 * @return The resource of the given location, which has to be {@link #release(Object) released} again.
+	 * @throws IllegalArgumentException If the resource of the location was created for another configuration.
+	 */
+	synchronized T acquire(File location, Object configuration, Factory<T> factory) throws IOException {
+		File key = location.getCanonicalFile();
+		Entry<T> entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry<>(factory.create(), configuration);
+			entries.put(key, entry);
+		} else if (!Objects.equals(entry.configuration, configuration)) {
+			throw new IllegalArgumentException(String.format("The location '%s' is already in use with the configuration %s, not %s.",
+					key, entry.configuration, configuration));
+		}
+		entry.references++;
+		return entry.resource;
+	}
+	
+	/**
+	 * @param resource A resource returned by {@link #acquire(File, Object, Factory)}.
+	 * @return True, if the resource has been released by all instances that acquired it and is to be finished by the
+	 * caller.
+	 */
+	synchronized boolean release(T resource) {
+		Iterator<Map.Entry<File, Entry<T>>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<T> entry = iterator.next().getValue();
+			if (entry.resource == resource) {
+				if (--entry.references > 0)
+					return false;
+				iterator.remove();
+				return true;
+			}
+		}
+		throw new IllegalStateException("The resource has already been released.");
+	}
+	
+	private static final class Entry<T> {
+		final T resource;
+		final Object configuration;
+		int references = 0;
+		
+		Entry(T resource, Object configuration) {
+			this.resource = resource;
+			this.configuration = configuration;
+		}
+	}
+}
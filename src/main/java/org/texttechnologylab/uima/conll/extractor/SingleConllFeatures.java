@@ -17,9 +17,8 @@ public class SingleConllFeatures extends ArrayList<String> implements IConllFeat
 		this.name(initalElement);
 	}
 	
-	@Override
 	public void name(String name) {
-		this.set(0, name.replaceAll("([IB]-)*", ""));
+		this.set(0, InternedConllFeatures.stripTags(name));
 	}
 	
 	@Override
@@ -27,7 +26,6 @@ public class SingleConllFeatures extends ArrayList<String> implements IConllFeat
 		return this.get(0);
 	}
 	
-	@Override
 	public void prependTag(String tag) {
 		this.prependTag = tag;
 	}
@@ -16,9 +16,8 @@ public class TTLabConllFeatures extends ArrayList<String> implements IConllFeatu
 		this.name(initalElement);
 	}
 	
-	@Override
 	public void name(String name) {
-		this.set(0, name.replaceAll("([IB]-)*", ""));
+		this.set(0, InternedConllFeatures.stripTags(name));
 	}
 	
 	@Override
@@ -26,7 +25,6 @@ public class TTLabConllFeatures extends ArrayList<String> implements IConllFeatu
 		return this.get(0);
 	}
 	
-	@Override
 	public void prependTag(String tag) {
 		this.prependTag = tag;
 	}
@@ -0,0 +1,195 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Exports the rows of the CoNLL files as integer arrays in the NumPy {@code .npy} format, such that training code can
+ * memory-map them instead of parsing the CoNLL text.
+ * <p>
+ * For each document, three arrays are written to the target location:
+ * <ul>
+ * <li>{@code <id>.sentences.npy}: int64 of shape {@code (sentences + 1,)}, the offset of each sentence into the token
+ * arrays followed by the total number of tokens, such that sentence {@code i} spans the tokens from {@code
+ * offsets[i]} to {@code offsets[i + 1]},</li>
+ * <li>{@code <id>.tokens.npy}: int32 of shape {@code (tokens,)}, the id of each token text in the token
+ * vocabulary,</li>
+ * <li>{@code <id>.labels.npy}: int32 of shape {@code (tokens, columns)}, the id of the tag of the hierarchy level of
+ * each named entity column in the label vocabulary, or -1 if a token has fewer levels than columns.</li>
+ * </ul>
+ * The vocabularies are shared by all documents and written to {@value #TOKEN_VOCABULARY} and {@value
+ * #LABEL_VOCABULARY} by {@link #writeVocabularies()}, one entry per line, such that the line number is the id. Line
+ * breaks and backslashes within an entry are {@link #escape(String) escaped} as {@code \n}, {@code \r} and {@code \\},
+ * such that an entry never spans more than one line. All {@link ConllBIO2003Writer} instances with the same target
+ * location share one exporter by {@link SharedResources}, such that the ids of all documents refer to the same
+ * vocabularies.
+ * </p><p>
+ * This class is thread-safe, ids are assigned in the order the entries are first seen.
+ * </p>
+ */
+final class TensorExporter {
+	
+	static final String TOKEN_VOCABULARY = "tokens.vocab";
+	static final String LABEL_VOCABULARY = "labels.vocab";
+	
+	private final File targetLocation;
+	private final Vocabulary<CharBuffer> tokenVocabulary = new Vocabulary<>(token -> CharBuffer.wrap(token.toString()));
+	private final Vocabulary<String> labelVocabulary = new Vocabulary<>(Function.identity());
+	
+	TensorExporter(File targetLocation) {
+		this.targetLocation = targetLocation;
+	}
+	
+	/**
+	 * @param text    The text of the document.
+	 * @param columns The number of named entity columns of each token.
+	 * @return A new, empty document.
+	 */
+	Document newDocument(String text, int columns) {
+		return new Document(text, columns);
+	}
+	
+	void writeVocabularies() throws IOException {
+		tokenVocabulary.write(new File(targetLocation, TOKEN_VOCABULARY));
+		labelVocabulary.write(new File(targetLocation, LABEL_VOCABULARY));
+	}
+	
+	/**
+	 * @return The given vocabulary entry with each backslash, line feed and carriage return replaced by a backslash
+	 * followed by a backslash, 'n' and 'r' respectively.
+	 */
+	static String escape(String entry) {
+		StringBuilder escaped = null;
+		for (int i = 0; i < entry.length(); i++) {
+			char c = entry.charAt(i);
+			String replacement = c == '\\' ? "\\\\" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : null;
+			if (replacement != null && escaped == null)
+				escaped = new StringBuilder(entry.length() + 8).append(entry, 0, i);
+			if (escaped != null) {
+				if (replacement != null)
+					escaped.append(replacement);
+				else
+					escaped.append(c);
+			}
+		}
+		return escaped == null ? entry : escaped.toString();
+	}
+	
+	/**
+	 * The arrays of a single document, which are filled sentence by sentence. Not thread-safe.
+	 */
+	final class Document {
+		/**
+		 * The document text, positioned to each token in turn to look up its id without copying it.
+		 */
+		private final CharBuffer text;
+		private final int columns;
+		private long[] sentenceOffsets = new long[16];
+		private int sentenceCount = 0;
+		private int[] tokens = new int[256];
+		private int[] labels;
+		private int tokenCount = 0;
+		
+		private Document(String text, int columns) {
+			this.text = CharBuffer.wrap(text);
+			this.columns = Math.max(1, columns);
+			this.labels = new int[tokens.length * this.columns];
+		}
+		
+		/**
+		 * Start a new sentence, all following tokens belong to it.
+		 */
+		void addSentence() {
+			if (sentenceCount == sentenceOffsets.length)
+				sentenceOffsets = Arrays.copyOf(sentenceOffsets, 2 * sentenceCount);
+			sentenceOffsets[sentenceCount++] = tokenCount;
+		}
+		
+		/**
+		 * @param begin The begin offset of the token in the document text.
+		 * @param end   The end offset of the token in the document text.
+		 * @param tags  The tag of each hierarchy level of the token, at most one per column are used.
+		 */
+		void addToken(int begin, int end, List<String> tags) {
+			if (tokenCount == tokens.length) {
+				tokens = Arrays.copyOf(tokens, 2 * tokenCount);
+				labels = Arrays.copyOf(labels, tokens.length * columns);
+			}
+			text.clear();
+			text.limit(end).position(begin);
+			tokens[tokenCount] = tokenVocabulary.getId(text);
+			int offset = tokenCount * columns;
+			for (int column = 0; column < columns; column++) {
+				labels[offset + column] = column < tags.size() ? labelVocabulary.getId(tags.get(column)) : -1;
+			}
+			tokenCount++;
+		}
+		
+		/**
+		 * Write the arrays of this document with the given id as file name prefix.
+		 */
+		void write(String documentId) throws IOException {
+			long[] offsets = Arrays.copyOf(sentenceOffsets, sentenceCount + 1);
+			offsets[sentenceCount] = tokenCount;
+			NpyArrays.write(new File(targetLocation, documentId + ".sentences.npy"), offsets, sentenceCount + 1);
+			NpyArrays.write(new File(targetLocation, documentId + ".tokens.npy"), tokens, tokenCount);
+			NpyArrays.write(new File(targetLocation, documentId + ".labels.npy"), labels, tokenCount, columns);
+		}
+	}
+	
+	/**
+	 * A thread-safe mapping of character sequences to dense ids.
+	 *
+	 * @param <K> The type of the entries, which have to implement equals and hash code by their characters.
+	 */
+	private static final class Vocabulary<K extends CharSequence> {
+		private final ConcurrentHashMap<K, Integer> ids = new ConcurrentHashMap<>();
+		private final ArrayList<String> entries = new ArrayList<>();
+		private final Function<K, K> copy;
+		
+		/**
+		 * @param copy Creates the key to store for a new entry, which must not change even if the given entry does.
+		 */
+		Vocabulary(Function<K, K> copy) {
+			this.copy = copy;
+		}
+		
+		int getId(K entry) {
+			Integer id = ids.get(entry);
+			if (id != null)
+				return id;
+			synchronized (entries) {
+				id = ids.get(entry);
+				if (id == null) {
+					K key = copy.apply(entry);
+					entries.add(key.toString());
+					id = entries.size() - 1;
+					ids.put(key, id);
+				}
+				return id;
+			}
+		}
+		
+		void write(File file) throws IOException {
+			synchronized (entries) {
+				try (PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), StandardCharsets.UTF_8))) {
+					for (String entry : entries) {
+						printWriter.print(escape(entry));
+						printWriter.print('\n');
+					}
+				}
+			}
+		}
+	}
+}
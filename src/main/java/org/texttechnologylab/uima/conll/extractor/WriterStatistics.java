@@ -0,0 +1,97 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run-wide counters of all {@link ConllBIO2003Writer} instances with the same target location, which share one
+ * instance by {@link SharedResources}.
+ * <p>
+ * All counters are {@link LongAdder LongAdders}, such that threads sharing one writer instance, or the instances of
+ * multiple threads, can update them without contention. The counts are only exact once all threads have finished
+ * processing, e.g. in the last {@link ConllBIO2003Writer#collectionProcessComplete()}.
+ * </p>
+ */
+final class WriterStatistics {
+	
+	/**
+	 * The reasons for which a document may be skipped.
+	 */
+	enum SkipReason {
+		AGREEMENT("no category with sufficient agreement"),
+		VIEW_CONSTRAINT("view constraint"),
+		NO_ENTITIES("no named entities"),
+		CAS_ERROR("CAS error");
+		
+		final String description;
+		
+		SkipReason(String description) {
+			this.description = description;
+		}
+	}
+	
+	final LongAdder documentsWritten = new LongAdder();
+	final LongAdder sentencesWritten = new LongAdder();
+	final LongAdder emptySentences = new LongAdder();
+	final LongAdder tagsWritten = new LongAdder();
+	final LongAdder bytesWritten = new LongAdder();
+	final LongAdder rawDocumentsWritten = new LongAdder();
+	
+	/**
+	 * Populated for all reasons on construction and never modified afterwards, such that it may be read concurrently.
+	 */
+	private final EnumMap<SkipReason, LongAdder> documentsSkipped = new EnumMap<>(SkipReason.class);
+	
+	WriterStatistics() {
+		for (SkipReason reason : SkipReason.values()) {
+			documentsSkipped.put(reason, new LongAdder());
+		}
+	}
+	
+	void skipped(SkipReason reason) {
+		documentsSkipped.get(reason).increment();
+	}
+	
+	/**
+	 * Record a written CoNLL document.
+	 *
+	 * @param sentences      The number of written sentences.
+	 * @param emptySentences The number of sentences omitted as they do not contain any tags.
+	 * @param tags           The number of written tags.
+	 */
+	void written(int sentences, int emptySentences, int tags) {
+		this.documentsWritten.increment();
+		this.sentencesWritten.add(sentences);
+		this.emptySentences.add(emptySentences);
+		this.tagsWritten.add(tags);
+	}
+	
+	long getDocumentsSkipped(SkipReason reason) {
+		return documentsSkipped.get(reason).sum();
+	}
+	
+	long getDocumentsSkipped() {
+		long sum = 0L;
+		for (LongAdder adder : documentsSkipped.values()) {
+			sum += adder.sum();
+		}
+		return sum;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder skipped = new StringBuilder();
+		for (SkipReason reason : SkipReason.values()) {
+			long count = getDocumentsSkipped(reason);
+			if (count > 0) {
+				skipped.append(skipped.length() == 0 ? " (" : ", ").append(count).append(" ").append(reason.description);
+			}
+		}
+		if (skipped.length() > 0)
+			skipped.append(")");
+		return String.format("Wrote %d documents with %d sentences and %d tags, %d bytes in total. " +
+						"Skipped %d empty sentences and %d documents%s. Wrote %d raw documents.",
+				documentsWritten.sum(), sentencesWritten.sum(), tagsWritten.sum(), bytesWritten.sum(),
+				emptySentences.sum(), getDocumentsSkipped(), skipped, rawDocumentsWritten.sum());
+	}
+}
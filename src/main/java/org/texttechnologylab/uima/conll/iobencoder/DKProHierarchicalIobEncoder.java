@@ -6,11 +6,9 @@ import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import org.apache.commons.collections4.bidimap.DualLinkedHashBidiMap;
 import org.apache.uima.UIMAException;
-import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.TOP;
 import org.apache.uima.jcas.tcas.Annotation;
-import org.apache.uima.util.CasCopier;
 import org.texttechnologylab.annotation.type.Fingerprint;
 
 import java.util.ArrayList;
@@ -52,14 +50,16 @@ public class DKProHierarchicalIobEncoder extends GenericIobEncoder<NamedEntity>
 	}
 	
 	@Override
-	void mergeViews() throws CASException {
-		mergedCas.reset();
-		CasCopier.copyCas(jCas.getCas(), mergedCas.getCas(), true, true);
-		try {
-			DocumentMetaData.get(jCas);
-			DocumentMetaData.copy(jCas, mergedCas);
-		} catch (IllegalArgumentException ignored) {
-			// Empty catch block
+	public void mergeViews() throws UIMAException {
+		resetMergedCas();
+		copyBaseView();
+		if (!useProjectionMerge) {
+			try {
+				DocumentMetaData.get(jCas);
+				DocumentMetaData.copy(jCas, mergedCas);
+			} catch (IllegalArgumentException ignored) {
+				// Empty catch block
+			}
 		}
 		
 		jCas.getViewIterator().forEachRemaining(viewCas -> {
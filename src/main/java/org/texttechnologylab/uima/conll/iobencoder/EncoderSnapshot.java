@@ -0,0 +1,406 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.jcas.JCas;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.apache.uima.fit.util.JCasUtil.selectCovered;
+
+/**
+ * The state of a built {@link GenericIobEncoder} that determines its CoNLL output: the tokens of all sentences with
+ * their POS and lemma values, the NE hierarchy of each token and the {@link GenericIobEncoder#maxCoverageOrder coverage
+ * order} of the hierarchy levels.
+ * <p>
+ * A snapshot is independent of the CAS it was created from, such that the hierarchy can be projected with another
+ * {@link GenericIobEncoder.Strategy strategy} or number of columns without deserializing and merging the CAS again.
+ * All strings are stored once in a string table and referenced by their index, labels are stored as lists of string
+ * indices and referenced by their label id.
+ * </p><p>
+ * The binary format starts with the {@link #MAGIC magic number} and the {@link #VERSION version}, followed by the
+ * document name, the string table, the label table, the id of the empty label, the coverage order, the number of
+ * tokens of each sentence and, for each token, the indices of its text, POS and lemma value (-1 if absent), its depth
+ * (-1 if the token is unknown to the encoder) and the ids of its labels from the top level down.
+ * </p>
+ */
+public final class EncoderSnapshot {
+	
+	/**
+	 * The extension of snapshot files.
+	 */
+	public static final String EXTENSION = ".iobs";
+	
+	static final int MAGIC = 0x494F4253;
+	static final int VERSION = 1;
+	
+	private final String name;
+	private final String[] strings;
+	private final int[][] labels;
+	private final int emptyLabelId;
+	private final int[] maxCoverageOrder;
+	private final List<Integer> coverageOrder;
+	private final int[] sentenceStarts;
+	private final int[] tokenTexts;
+	private final int[] tokenPos;
+	private final int[] tokenLemmas;
+	private final int[] tokenDepths;
+	private final int[] labelStarts;
+	private final int[] tokenLabels;
+	
+	private EncoderSnapshot(String name, String[] strings, int[][] labels, int emptyLabelId, int[] maxCoverageOrder,
+							int[] sentenceStarts, int[] tokenTexts, int[] tokenPos, int[] tokenLemmas, int[] tokenDepths,
+							int[] labelStarts, int[] tokenLabels) {
+		this.name = name;
+		this.strings = strings;
+		this.labels = labels;
+		this.emptyLabelId = emptyLabelId;
+		this.maxCoverageOrder = maxCoverageOrder;
+		this.coverageOrder = new IntList(maxCoverageOrder);
+		this.sentenceStarts = sentenceStarts;
+		this.tokenTexts = tokenTexts;
+		this.tokenPos = tokenPos;
+		this.tokenLemmas = tokenLemmas;
+		this.tokenDepths = tokenDepths;
+		this.labelStarts = labelStarts;
+		this.tokenLabels = tokenLabels;
+	}
+	
+	/**
+	 * Create a snapshot of the sentences of the {@link GenericIobEncoder#getMergedCas() merged CAS} of the given
+	 * encoder, which must have been {@link GenericIobEncoder#build() built}.
+	 *
+	 * @param encoder The built encoder.
+	 * @param name    The name of the document, used to name its output files.
+	 */
+	public static EncoderSnapshot create(GenericIobEncoder<?> encoder, String name) {
+		JCas mergedCas = encoder.getMergedCas();
+		StringTable stringTable = new StringTable();
+		
+		LabelDictionary labelDictionary = encoder.labelDictionary;
+		int[][] labels = new int[labelDictionary.size()][];
+		for (int id = 0; id < labels.length; id++) {
+			List<String> built = labelDictionary.getBuilt(id);
+			labels[id] = new int[built.size()];
+			for (int i = 0; i < built.size(); i++) {
+				labels[id][i] = stringTable.intern(built.get(i));
+			}
+		}
+		
+		List<Integer> coverageOrder = encoder.maxCoverageOrder;
+		int[] maxCoverageOrder = coverageOrder == null ? new int[0] : coverageOrder.stream().mapToInt(Integer::intValue).toArray();
+		
+		ArrayList<Integer> sentenceStarts = new ArrayList<>();
+		IntArray tokenTexts = new IntArray();
+		IntArray tokenPos = new IntArray();
+		IntArray tokenLemmas = new IntArray();
+		IntArray tokenDepths = new IntArray();
+		IntArray labelStarts = new IntArray();
+		IntArray tokenLabels = new IntArray();
+		LabelMatrix labelMatrix = encoder.labelMatrix;
+		for (Sentence sentence : select(mergedCas, Sentence.class)) {
+			sentenceStarts.add(tokenTexts.size);
+			for (Token token : selectCovered(Token.class, sentence)) {
+				POS pos = token.getPos();
+				Lemma lemma = token.getLemma();
+				tokenTexts.add(stringTable.intern(token.getCoveredText()));
+				tokenPos.add(stringTable.intern(pos == null ? null : pos.getPosValue()));
+				tokenLemmas.add(stringTable.intern(lemma == null ? null : lemma.getValue()));
+				labelStarts.add(tokenLabels.size);
+				int ordinal = encoder.getTokenOrdinal(token);
+				if (labelMatrix == null || ordinal < 0 || ordinal >= labelMatrix.tokenCount()) {
+					tokenDepths.add(-1);
+				} else {
+					int depth = labelMatrix.depth(ordinal);
+					tokenDepths.add(depth);
+					for (int level = 0; level < depth; level++) {
+						tokenLabels.add(labelMatrix.get(level, ordinal));
+					}
+				}
+			}
+		}
+		sentenceStarts.add(tokenTexts.size);
+		labelStarts.add(tokenLabels.size);
+		
+		return new EncoderSnapshot(name, stringTable.strings.toArray(new String[0]), labels, encoder.emptyLabelId, maxCoverageOrder,
+				sentenceStarts.stream().mapToInt(Integer::intValue).toArray(), tokenTexts.toArray(), tokenPos.toArray(),
+				tokenLemmas.toArray(), tokenDepths.toArray(), labelStarts.toArray(), tokenLabels.toArray());
+	}
+	
+	/**
+	 * @return The name of the document.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	public int getSentenceCount() {
+		return sentenceStarts.length - 1;
+	}
+	
+	/**
+	 * @return The index of the first token of the given sentence.
+	 */
+	public int getSentenceBegin(int sentence) {
+		return sentenceStarts[sentence];
+	}
+	
+	/**
+	 * @return The index after the last token of the given sentence.
+	 */
+	public int getSentenceEnd(int sentence) {
+		return sentenceStarts[sentence + 1];
+	}
+	
+	/**
+	 * @return The covered text of the token with the given index.
+	 */
+	public String getText(int token) {
+		return strings[tokenTexts[token]];
+	}
+	
+	/**
+	 * @return The POS value of the token with the given index, or null if it has no POS.
+	 */
+	public String getPos(int token) {
+		return getString(tokenPos[token]);
+	}
+	
+	/**
+	 * @return The lemma value of the token with the given index, or null if it has no lemma.
+	 */
+	public String getLemma(int token) {
+		return getString(tokenLemmas[token]);
+	}
+	
+	/**
+	 * Get the features of the token with the given index, as by {@link GenericIobEncoder#getFeaturesForNColumns(int,
+	 * GenericIobEncoder.Strategy, int)} of the encoder this snapshot was created from.
+	 */
+	public ArrayList<String> getFeaturesForNColumns(int token, GenericIobEncoder.Strategy strategy, int nColumns) {
+		ArrayList<String> retList = new ArrayList<>();
+		addFeaturesForNColumns(token, strategy, nColumns, retList);
+		return retList;
+	}
+	
+	/**
+	 * Add the features of {@link #getFeaturesForNColumns(int, GenericIobEncoder.Strategy, int)} to the given list.
+	 */
+	public void addFeaturesForNColumns(int token, GenericIobEncoder.Strategy strategy, int nColumns, List<String> features) {
+		int depth = tokenDepths[token];
+		for (int i = 0; i < Math.min(nColumns, depth); i++) {
+			int level = GenericIobEncoder.getLevel(i, depth, strategy, coverageOrder);
+			for (int stringId : labels[level < 0 ? emptyLabelId : tokenLabels[labelStarts[token] + level]]) {
+				features.add(strings[stringId]);
+			}
+		}
+	}
+	
+	private String getString(int id) {
+		return id < 0 ? null : strings[id];
+	}
+	
+	/**
+	 * Write this snapshot to the given file, creating its parent directories if necessary.
+	 */
+	public void write(File file) throws IOException {
+		try (OutputStream outputStream = new BufferedOutputStream(FileUtils.openOutputStream(file))) {
+			write(outputStream);
+		}
+	}
+	
+	/**
+	 * Write this snapshot to the given stream, which is not closed.
+	 */
+	public void write(OutputStream outputStream) throws IOException {
+		DataOutputStream output = new DataOutputStream(outputStream);
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		writeString(output, name);
+		output.writeInt(strings.length);
+		for (String string : strings) {
+			writeString(output, string);
+		}
+		output.writeInt(labels.length);
+		for (int[] label : labels) {
+			writeInts(output, label);
+		}
+		output.writeInt(emptyLabelId);
+		writeInts(output, maxCoverageOrder);
+		int sentenceCount = getSentenceCount();
+		output.writeInt(sentenceCount);
+		for (int sentence = 0; sentence < sentenceCount; sentence++) {
+			output.writeInt(getSentenceEnd(sentence) - getSentenceBegin(sentence));
+		}
+		for (int token = 0; token < tokenTexts.length; token++) {
+			output.writeInt(tokenTexts[token]);
+			output.writeInt(tokenPos[token]);
+			output.writeInt(tokenLemmas[token]);
+			output.writeInt(tokenDepths[token]);
+			for (int i = labelStarts[token]; i < labelStarts[token + 1]; i++) {
+				output.writeInt(tokenLabels[i]);
+			}
+		}
+		output.flush();
+	}
+	
+	/**
+	 * Read a snapshot from the given file.
+	 */
+	public static EncoderSnapshot read(File file) throws IOException {
+		try (InputStream inputStream = new BufferedInputStream(FileUtils.openInputStream(file))) {
+			return read(inputStream);
+		}
+	}
+	
+	/**
+	 * Read a snapshot from the given stream, which is not closed.
+	 */
+	public static EncoderSnapshot read(InputStream inputStream) throws IOException {
+		DataInputStream input = new DataInputStream(inputStream);
+		if (input.readInt() != MAGIC)
+			throw new IOException("Not an encoder snapshot.");
+		int version = input.readInt();
+		if (version != VERSION)
+			throw new IOException(String.format("Unsupported encoder snapshot version %d.", version));
+		String name = readString(input);
+		String[] strings = new String[input.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(input);
+		}
+		int[][] labels = new int[input.readInt()][];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = readInts(input);
+		}
+		int emptyLabelId = input.readInt();
+		int[] maxCoverageOrder = readInts(input);
+		int[] sentenceStarts = new int[input.readInt() + 1];
+		for (int sentence = 1; sentence < sentenceStarts.length; sentence++) {
+			sentenceStarts[sentence] = sentenceStarts[sentence - 1] + input.readInt();
+		}
+		int tokenCount = sentenceStarts[sentenceStarts.length - 1];
+		int[] tokenTexts = new int[tokenCount];
+		int[] tokenPos = new int[tokenCount];
+		int[] tokenLemmas = new int[tokenCount];
+		int[] tokenDepths = new int[tokenCount];
+		int[] labelStarts = new int[tokenCount + 1];
+		IntArray tokenLabels = new IntArray();
+		for (int token = 0; token < tokenCount; token++) {
+			tokenTexts[token] = input.readInt();
+			tokenPos[token] = input.readInt();
+			tokenLemmas[token] = input.readInt();
+			tokenDepths[token] = input.readInt();
+			labelStarts[token] = tokenLabels.size;
+			for (int level = 0; level < tokenDepths[token]; level++) {
+				tokenLabels.add(input.readInt());
+			}
+		}
+		labelStarts[tokenCount] = tokenLabels.size;
+		return new EncoderSnapshot(name, strings, labels, emptyLabelId, maxCoverageOrder, sentenceStarts,
+				tokenTexts, tokenPos, tokenLemmas, tokenDepths, labelStarts, tokenLabels.toArray());
+	}
+	
+	private static void writeString(DataOutputStream output, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	private static String readString(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+		output.writeInt(values.length);
+		for (int value : values) {
+			output.writeInt(value);
+		}
+	}
+	
+	private static int[] readInts(DataInputStream input) throws IOException {
+		int[] values = new int[input.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = input.readInt();
+		}
+		return values;
+	}
+	
+	/**
+	 * Assigns a dense index to each distinct string.
+	 */
+	private static final class StringTable {
+		final ArrayList<String> strings = new ArrayList<>();
+		final HashMap<String, Integer> ids = new HashMap<>();
+		
+		/**
+		 * @return The index of the given string, or -1 if it is null.
+		 */
+		int intern(String string) {
+			if (string == null)
+				return -1;
+			return ids.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+	}
+	
+	/**
+	 * A growing primitive int array.
+	 */
+	private static final class IntArray {
+		int[] values = new int[64];
+		int size = 0;
+		
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = value;
+		}
+		
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+	
+	/**
+	 * A read-only list view of an int array, as required by {@link GenericIobEncoder#getLevel(int, int,
+	 * GenericIobEncoder.Strategy, List)}.
+	 */
+	private static final class IntList extends AbstractList<Integer> {
+		final int[] values;
+		
+		IntList(int[] values) {
+			this.values = values;
+		}
+		
+		@Override
+		public Integer get(int index) {
+			return values[index];
+		}
+		
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+}
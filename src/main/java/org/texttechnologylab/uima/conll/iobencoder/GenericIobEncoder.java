@@ -1,14 +1,19 @@
 package org.texttechnologylab.uima.conll.iobencoder;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.cas.text.AnnotationIndex;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.TOP;
@@ -18,22 +23,39 @@ import org.jetbrains.annotations.NotNull;
 import org.texttechnologylab.annotation.type.Fingerprint;
 import org.texttechnologylab.annotation.type.TexttechnologyNamedEntity;
 import org.texttechnologylab.uima.conll.extractor.IConllFeatures;
-import org.texttechnologylab.uima.conll.extractor.SingleConllFeatures;
+import org.texttechnologylab.uima.conll.extractor.InternedConllFeatures;
 import org.texttechnologylab.utilities.collections.CountMap;
 
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static org.apache.uima.fit.util.JCasUtil.*;
 
 public abstract class GenericIobEncoder<T extends Annotation> {
-	final HashMap<Token, ArrayList<IConllFeatures>> hierachialTokenNamedEntityMap;
 	final CountMap<T> namedEntityHierachy;
 	final JCas jCas;
 	final ArrayList<Class<? extends Annotation>> includeAnnotations;
 	final TreeMap<Integer, Token> tokenIndexMap;
+	final HashMap<Token, Integer> tokenOrdinalMap;
+	
+	/**
+	 * The NE hierarchy of all tokens as ids of the {@link #labelDictionary}, addressed by hierarchy level and token
+	 * ordinal.
+	 */
+	LabelMatrix labelMatrix;
+	final LabelDictionary labelDictionary;
+	
+	/**
+	 * The vocabulary the features of the entities are interned in, see {@link
+	 * #setFeatureVocabulary(InternedConllFeatures.Vocabulary)}.
+	 */
+	InternedConllFeatures.Vocabulary featureVocabulary = new InternedConllFeatures.Vocabulary();
+	
+	/**
+	 * The offsets of all tokens by ordinal, used to resolve the tokens covered by each NE.
+	 */
+	TokenOffsetIndex tokenOffsetIndex;
+	int emptyLabelId;
 	
 	Logger logger = Logger.getLogger(this.getClass());
 	
@@ -91,12 +113,45 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 */
 	boolean annotatorRelation = BLACKLIST;
 	
+	/**
+	 * If true, rank the NEs in a single sweep over the NEs using a {@link SweepLineRanker}. Otherwise subiterate the
+	 * CAS once for each NE, which is quadratic in the number of NEs. Both approaches yield the same ranks. Default:
+	 * true.
+	 */
+	boolean useSweepLineRanking = true;
+	
+	/**
+	 * If true, only copy the annotations of the base view that are read by the encoder and the writers into the {@link
+	 * #mergedCas}: {@link Token Tokens} with their {@link POS} and {@link Lemma}, {@link Sentence Sentences}, the {@link
+	 * DocumentMetaData} and the annotations returned by {@link #getProjectedEntityTypes()}. Otherwise copy the whole
+	 * CAS with all views. Default: false.
+	 */
+	boolean useProjectionMerge = false;
+	
 	public static boolean WHITELIST = true;
 	public static boolean BLACKLIST = false;
 	TreeMap<Long, TreeSet<T>> namedEntityByRank;
 	
 	ArrayList<Integer> maxCoverageOrder;
-	public LinkedHashMap<Integer, Long> coverageCount = new LinkedHashMap<>();
+	
+	/**
+	 * The maximum number of ranks visited by {@link #breadthFirstSearch(ArrayList)}, see {@link
+	 * #requireProjection(Strategy, int)}. Default: {@link Integer#MAX_VALUE}, building the whole hierarchy.
+	 */
+	int levelLimit = Integer.MAX_VALUE;
+	
+	/**
+	 * If false, the {@link #maxCoverageOrder} is not computed, see {@link #requireProjection(Strategy, int)}. Default:
+	 * true.
+	 */
+	boolean countCoverage = true;
+	
+	private boolean projectionRequired = false;
+	
+	/**
+	 * The number of tokens removed by {@link #removeSubTokens()}.
+	 */
+	int removedSubTokenCount = 0;
 	
 	Comparator<Annotation> beginComparator = Comparator.comparingInt(Annotation::getBegin);
 	
@@ -119,11 +174,11 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 		this.includeAnnotations = includeAnnotations;
 		this.annotatorSet = annotatorSet;
 		
-		this.hierachialTokenNamedEntityMap = new HashMap<>();
 		this.namedEntityHierachy = new CountMap<>();
 		this.namedEntityByRank = new TreeMap<>();
 		this.tokenIndexMap = new TreeMap<>();
-		this.mergedCas = JCasFactory.createJCas();
+		this.tokenOrdinalMap = new HashMap<>();
+		this.labelDictionary = new LabelDictionary();
 	}
 	
 	
@@ -146,15 +201,8 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 			// Initialize the hierarchy
 			namedEntities.forEach(key -> namedEntityHierachy.put(key, 0L));
 			
-			// Iterate over all NEs that are being covered by another NE
-			// and set their hierarchy level to their parents level + 1
-			for (T parentNamedEntity : namedEntities) {
-				JCasUtil.subiterate(mergedCas, type, parentNamedEntity, true, false)
-						.forEach(childNamedEntity -> {
-							if (namedEntities.contains(childNamedEntity))
-								namedEntityHierachy.put(childNamedEntity, namedEntityHierachy.get(parentNamedEntity) + 1);
-						});
-			}
+			// Set the hierarchy level of all NEs that are being covered by another NE to their parents level + 1
+			rankNamedEntities(namedEntities);
 			
 			// Put all NEs into a Map<Integer, TreeSet> by their rank, with all sets ordered by the begin of the entities
 			namedEntityHierachy.forEach((ne, rank) -> {
@@ -163,25 +211,21 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 				namedEntityByRank.put(rank, orderedTreeSetOfRank);
 			});
 			
-			// Create an empty list for all layers of NEs for each Token
+			// Create an empty hierarchy for all layers of NEs for each Token
 			ArrayList<Token> tokens = new ArrayList<>(select(mergedCas, Token.class));
-			for (int i = 0; i < tokens.size(); i++) {
-				Token token = tokens.get(i);
-				tokenIndexMap.put(i, token);
-				hierachialTokenNamedEntityMap.put(token, new ArrayList<>());
-			}
+			initializeHierarchy(tokens);
 			
 			if (namedEntityByRank.values().size() != 0) {
 				// TODO: parametrize the approach selection
 				breadthFirstSearch(mergedCas, tokens);
 			} else {
-				for (Token token : tokens) {
-					ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(token);
-					namedEntityStringTreeMap.add(getEmptyConllFeatures());
+				for (int i = 0; i < tokens.size(); i++) {
+					labelMatrix.append(i, emptyLabelId);
 				}
 			}
 			
-			createMaxCoverageLookup();
+			if (countCoverage)
+				createMaxCoverageLookup();
 		} catch (CASException e) {
 			e.printStackTrace();
 		} catch (UIMAException e) {
@@ -190,30 +234,191 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	}
 	
 	/**
-	 * Remove all duplicate, overlapping annotations subclassing {@link #type} using {@link JCasUtil#subiterate(JCas,
-	 * Class, AnnotationFS, boolean, boolean)}. Will only remove shorter or equal length child annotations for any given
-	 * parent annotation.
+	 * Restore the state of a built encoder before its NE hierarchy was created, such that {@link
+	 * #breadthFirstSearch(ArrayList)} or {@link #naiveStackingApproach(JCas, ArrayList)} can be repeated, e.g. by a
+	 * benchmark. The search removes all visited entities from their rank sets, so these are rebuilt from the ranks.
 	 *
-	 * @param namedEntities The set of entities to remove all duplicates from.
+	 * @param tokens The tokens in index order.
+	 */
+	@VisibleForTesting
+	public void resetHierarchy(ArrayList<Token> tokens) {
+		namedEntityByRank = new TreeMap<>();
+		namedEntityHierachy.forEach((ne, rank) -> namedEntityByRank
+				.computeIfAbsent(rank, key -> new TreeSet<>(beginComparator))
+				.add(ne));
+		initializeHierarchy(tokens);
+	}
+	
+	/**
+	 * Assign an ordinal to each of the given tokens and create an empty {@link #labelMatrix} for them.
+	 *
+	 * @param tokens The tokens in index order.
+	 */
+	void initializeHierarchy(ArrayList<Token> tokens) {
+		for (int i = 0; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			tokenIndexMap.put(i, token);
+			tokenOrdinalMap.put(token, i);
+		}
+		labelMatrix = new LabelMatrix(tokens.size(), labelDictionary);
+		tokenOffsetIndex = new TokenOffsetIndex(tokens);
+		emptyLabelId = labelDictionary.intern(getEmptyConllFeatures());
+	}
+	
+	/**
+	 * Append the given features to the NE hierarchy of the token with the given ordinal.
 	 */
-	protected void removeDuplicates(LinkedHashSet<T> namedEntities) {
-		LinkedHashSet<T> iterNamedEntities = (LinkedHashSet<T>) namedEntities.clone();
-		for (T parentNamedEntity : iterNamedEntities) {
-			JCasUtil.subiterate(mergedCas, type, parentNamedEntity, true, true)
+	void addToHierarchy(int tokenOrdinal, IConllFeatures features) {
+		labelMatrix.append(tokenOrdinal, labelDictionary.intern(features));
+	}
+	
+	/**
+	 * Set the hierarchy level of each NE that is being covered by another NE to their parents level + 1, using either
+	 * a {@link SweepLineRanker} or {@link #rankNamedEntitiesBySubiteration(LinkedHashSet) subiteration}, depending on
+	 * {@link #useSweepLineRanking}.
+	 *
+	 * @param namedEntities The set of entities to rank, with all ranks initialized in {@link #namedEntityHierachy}.
+	 */
+	void rankNamedEntities(LinkedHashSet<T> namedEntities) {
+		if (useSweepLineRanking) {
+			Comparator<Annotation> indexOrder = getIndexOrder();
+			ArrayList<T> sortedNamedEntities = new ArrayList<>(namedEntities);
+			sortedNamedEntities.sort(indexOrder);
+			SweepLineRanker.rank(sortedNamedEntities, indexOrder, namedEntity -> true, namedEntityHierachy);
+		} else {
+			rankNamedEntitiesBySubiteration(namedEntities);
+		}
+	}
+	
+	/**
+	 * Iterate over all NEs that are being covered by another NE and set their hierarchy level to their parents level +
+	 * 1. Subiterates the {@link #mergedCas} once for each NE.
+	 *
+	 * @param namedEntities The set of entities to rank, with all ranks initialized in {@link #namedEntityHierachy}.
+	 */
+	void rankNamedEntitiesBySubiteration(LinkedHashSet<T> namedEntities) {
+		for (T parentNamedEntity : namedEntities) {
+			JCasUtil.subiterate(mergedCas, type, parentNamedEntity, true, false)
 					.forEach(childNamedEntity -> {
-						if (namedEntities.contains(childNamedEntity)
-								&& parentNamedEntity.getType().getShortName().equals(childNamedEntity.getType().getShortName())
-								&& (!removeDuplicateConstraintBegin || parentNamedEntity.getBegin() == childNamedEntity.getBegin())
-								&& (!removeDuplicateConstraintEnd || parentNamedEntity.getEnd() == childNamedEntity.getEnd())
-						)
-							namedEntities.remove(childNamedEntity);
+						if (namedEntities.contains(childNamedEntity))
+							namedEntityHierachy.put(childNamedEntity, namedEntityHierachy.get(parentNamedEntity) + 1);
 					});
 		}
 	}
 	
-	void mergeViews() throws CASException {
-		mergedCas.reset();
-		CasCopier.copyCas(jCas.getCas(), mergedCas.getCas(), true, true);
+	/**
+	 * Remove all tokens from the {@link #mergedCas} that are covered by another token, ie. the halves of a token that
+	 * was split by a hyphen.
+	 * <p>
+	 * A token is removed, if any token preceding it in the index ends at or after its end. This is equivalent to
+	 * collecting the tokens returned by {@link JCasUtil#subiterate(JCas, Class, AnnotationFS, boolean, boolean)
+	 * subiterate(mergedCas, Token.class, token, true, true)} for each token, but requires only a single sweep over the
+	 * tokens, keeping track of the maximum end offset. As in a subiteration, tokens comparing equal in the index do not
+	 * cover each other.
+	 * </p>
+	 *
+	 * @return The number of removed tokens, also stored in {@link #removedSubTokenCount}.
+	 */
+	int removeSubTokens() {
+		Comparator<Annotation> indexOrder = getIndexOrder();
+		ArrayList<Token> subTokens = new ArrayList<>();
+		int maxEnd = Integer.MIN_VALUE;
+		int groupEnd = Integer.MIN_VALUE;
+		Token previousToken = null;
+		for (Token token : select(mergedCas, Token.class)) {
+			// Tokens comparing equal in the index do not cover each other,
+			// so the end of a group of equal tokens is only considered once the group is complete
+			if (previousToken == null || indexOrder.compare(previousToken, token) != 0) {
+				maxEnd = Math.max(maxEnd, groupEnd);
+				groupEnd = token.getEnd();
+			}
+			if (maxEnd >= token.getEnd()) {
+				subTokens.add(token);
+			}
+			previousToken = token;
+		}
+		
+		subTokens.forEach(mergedCas::removeFsFromIndexes);
+		removedSubTokenCount = subTokens.size();
+		if (removedSubTokenCount > 0) {
+			getLogger().debug(String.format("Removed %d sub-tokens.", removedSubTokenCount));
+		}
+		return removedSubTokenCount;
+	}
+	
+	/**
+	 * @return The ordering relation of the annotation index of the {@link #mergedCas}.
+	 */
+	Comparator<Annotation> getIndexOrder() {
+		AnnotationIndex<Annotation> annotationIndex = mergedCas.getAnnotationIndex();
+		return annotationIndex::compare;
+	}
+	
+	/**
+	 * Remove all duplicate, overlapping annotations subclassing {@link #type}. Will only remove shorter or equal length
+	 * child annotations for any given parent annotation with the same type name, subject to {@link
+	 * #removeDuplicateConstraintBegin} and {@link #removeDuplicateConstraintEnd}.
+	 * <p>
+	 * The result is identical to subiterating the CAS with {@link JCasUtil#subiterate(JCas, Class, AnnotationFS,
+	 * boolean, boolean) subiterate(mergedCas, type, parent, true, true)} for each parent, but requires only a single
+	 * sort. Each entity is keyed by a packed long of its type name id and, if {@link #removeDuplicateConstraintEnd} is
+	 * set, its end. The entities are sorted by this key and their index order, such that all possible parents of an
+	 * entity precede it in the run of entities with the same key (and begin, if {@link #removeDuplicateConstraintBegin}
+	 * is set). An entity is then covered by one of them, if any preceding entity of the run, which does not compare
+	 * equal to it in the index, ends at or after its end.
+	 * </p>
+	 *
+	 * @param namedEntities The set of entities to remove all duplicates from.
+	 */
+	@VisibleForTesting
+	public void removeDuplicates(LinkedHashSet<T> namedEntities) {
+		HashMap<String, Integer> typeNameIds = new HashMap<>();
+		ArrayList<T> sortedNamedEntities = new ArrayList<>(namedEntities);
+		HashMap<T, Long> runKeys = new HashMap<>(namedEntities.size() * 2);
+		for (T namedEntity : sortedNamedEntities) {
+			String typeName = namedEntity.getType().getShortName();
+			Integer typeNameId = typeNameIds.computeIfAbsent(typeName, name -> typeNameIds.size());
+			long runKey = (long) typeNameId << 32;
+			if (removeDuplicateConstraintEnd)
+				runKey |= namedEntity.getEnd() & 0xFFFFFFFFL;
+			runKeys.put(namedEntity, runKey);
+		}
+		
+		Comparator<Annotation> indexOrder = getIndexOrder();
+		sortedNamedEntities.sort(Comparator.<T>comparingLong(runKeys::get).thenComparing(indexOrder));
+		
+		ArrayList<T> duplicates = new ArrayList<>();
+		T previous = null;
+		int maxEnd = Integer.MIN_VALUE;
+		int groupEnd = Integer.MIN_VALUE;
+		for (T namedEntity : sortedNamedEntities) {
+			if (previous == null
+					|| !runKeys.get(previous).equals(runKeys.get(namedEntity))
+					|| (removeDuplicateConstraintBegin && previous.getBegin() != namedEntity.getBegin())) {
+				// A new run of possible parents starts
+				maxEnd = Integer.MIN_VALUE;
+				groupEnd = namedEntity.getEnd();
+			} else if (indexOrder.compare(previous, namedEntity) != 0) {
+				// Entities comparing equal in the index do not cover each other,
+				// so the end of a group of equal entities is only considered once the group is complete
+				maxEnd = Math.max(maxEnd, groupEnd);
+				groupEnd = namedEntity.getEnd();
+			}
+			if (maxEnd >= namedEntity.getEnd()) {
+				duplicates.add(namedEntity);
+			}
+			previous = namedEntity;
+		}
+		
+		for (T duplicate : duplicates) {
+			namedEntities.remove(duplicate);
+		}
+	}
+	
+	@VisibleForTesting
+	public void mergeViews() throws UIMAException {
+		resetMergedCas();
+		copyBaseView();
 		
 		jCas.getViewIterator().forEachRemaining(viewCas -> {
 			String viewName = StringUtils.substringAfterLast(viewCas.getViewName().trim(), "/");
@@ -234,16 +439,59 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 		});
 		
 		// Remove all sub-tokens, ie. the halves of a tokens that were split by a hyphen.
-		ArrayList<Token> subTokens = new ArrayList<>();
-		JCasUtil.select(mergedCas, Token.class).forEach(
-				token -> JCasUtil.subiterate(mergedCas, Token.class, token, true, true).forEach(
-						subTokens::add
-				)
-		);
-		subTokens.forEach(mergedCas::removeFsFromIndexes);
+		removeSubTokens();
 	}
 	
 	
+	/**
+	 * Copy the base view of the {@link #jCas} into the {@link #mergedCas}, either the complete CAS or only a projection
+	 * onto the types read by the encoder, depending on {@link #useProjectionMerge}. The projection keeps the document
+	 * text, language and {@link DocumentMetaData}.
+	 */
+	void copyBaseView() {
+		if (!useProjectionMerge) {
+			CasCopier.copyCas(jCas.getCas(), mergedCas.getCas(), true, true);
+			return;
+		}
+		
+		mergedCas.setDocumentText(jCas.getDocumentText());
+		try {
+			DocumentMetaData.get(jCas);
+			DocumentMetaData.copy(jCas, mergedCas);
+		} catch (IllegalArgumentException ignored) {
+			// Empty catch block
+		}
+		// Kept without DocumentMetaData, too
+		mergedCas.setDocumentLanguage(jCas.getDocumentLanguage());
+		
+		CasCopier casCopier = new CasCopier(jCas.getCas(), mergedCas.getCas());
+		ArrayList<Class<? extends Annotation>> projectedTypes = Lists.newArrayList(Sentence.class, POS.class, Lemma.class);
+		projectedTypes.addAll(getProjectedEntityTypes());
+		for (Class<? extends Annotation> projectedType : projectedTypes) {
+			for (Annotation oAnnotation : select(jCas, projectedType)) {
+				mergedCas.addFsToIndexes(casCopier.copyFs(oAnnotation));
+			}
+		}
+		
+		// Tokens are not deep copied, as they may reference whole parse trees through their parent feature
+		for (Token oToken : select(jCas, Token.class)) {
+			Token nToken = (Token) mergedCas.getCas().createAnnotation(oToken.getType(), oToken.getBegin(), oToken.getEnd());
+			if (oToken.getPos() != null)
+				nToken.setPos((POS) casCopier.copyFs(oToken.getPos()));
+			if (oToken.getLemma() != null)
+				nToken.setLemma((Lemma) casCopier.copyFs(oToken.getLemma()));
+			nToken.addToIndexes();
+		}
+	}
+	
+	/**
+	 * @return The types of entities in the base view that are copied into the {@link #mergedCas} by a {@link
+	 * #useProjectionMerge projection merge}.
+	 */
+	Collection<Class<? extends Annotation>> getProjectedEntityTypes() {
+		return Collections.singletonList(type);
+	}
+	
 	protected boolean entityClassIsIncluded(Object oClass) {
 		for (Class<? extends Annotation> forceAnnotation : this.includeAnnotations) {
 			if (forceAnnotation.isAssignableFrom(oClass.getClass()))
@@ -260,7 +508,7 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 * {@link JCasUtil#select(JCas, Class)}.
 	 * </p><p>
 	 * For each rank, get all token covered by a NE and add the BIO code to the tokens hierarchy in the {@link
-	 * DKProHierarchicalIobEncoder#hierachialTokenNamedEntityMap}. After each iteration, check all <i>higher</i> ranks
+	 * DKProHierarchicalIobEncoder#labelMatrix}. After each iteration, check all <i>higher</i> ranks
 	 * for annotations, that cover annotations which are still unvisited in at this rank. At the end of each iteration
 	 * over a rank, add an "O" to all not covered tokens.
 	 * </p><p>
@@ -286,25 +534,46 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 * @see DKProHierarchicalIobEncoder#naiveStackingApproach(JCas, ArrayList) naiveStackingApproach(JCas, ArrayList)
 	 */
 	public void breadthFirstSearch(JCas jCas, ArrayList<Token> tokens) {
-		Map<T, Collection<Token>> tokenNeIndex = indexCovered(jCas, type, Token.class);
+		breadthFirstSearch(tokens);
+	}
+	
+	/**
+	 * Create a NE hierarchy by breadth-first search.
+	 * <p>
+	 * The tokens are addressed by their index in the given list, the tokens covered by each NE are resolved by the
+	 * {@link #tokenOffsetIndex} and the tokens covered in each iteration are tracked in a {@link BitSet}, such that
+	 * filling the hierarchy with "O" and checking for already covered tokens do not require any hash lookups.
+	 * </p><p>
+	 * Each iteration appends at least one label to every token, such that the first <i>n</i> levels of the hierarchy
+	 * are final after <i>n</i> iterations. The search stops after the {@link #levelLimit} iterations, without
+	 * resolving the tokens covered by the NEs of the remaining ranks.
+	 * </p>
+	 *
+	 * @param tokens A list of token to be considered, in the order of the {@link #tokenOffsetIndex}.
+	 * @see #breadthFirstSearch(JCas, ArrayList)
+	 */
+	@VisibleForTesting
+	public void breadthFirstSearch(ArrayList<Token> tokens) {
+		// Resolved on demand, as the NEs of the remaining ranks are never visited if the search stops early
+		HashMap<T, int[]> coveredTokenOrdinals = new HashMap<>(namedEntityHierachy.size() * 2);
+		
 		LinkedHashSet<T> visitedEntities = new LinkedHashSet<>();
 		ArrayList<TreeSet<T>> rankSets = Lists.newArrayList(namedEntityByRank.values());
-		for (int i = 0; i < rankSets.size(); i++) {
+		int iterations = Math.min(rankSets.size(), levelLimit);
+		// A set to collect all tokens, that have been covered by an annotation
+		BitSet visitedTokens = new BitSet(tokens.size());
+		for (int i = 0; i < iterations; i++) {
 			TreeSet<T> rankSet = rankSets.get(i);
 			rankSet.removeAll(visitedEntities);
 			
-			// A set to collect all tokens, that have been covered by an annotation
-			HashSet<Token> visitedTokens = new HashSet<>();
+			visitedTokens.clear();
 			
 			for (T namedEntity : rankSet) {
 				// Get all tokens covered by this NE
-				Collection<Token> coveredTokens = tokenNeIndex.get(namedEntity);
+				int[] coveredTokens = coveredTokenOrdinals.computeIfAbsent(namedEntity, tokenOffsetIndex::coveredOrdinals);
 				// If its not already covered, add this Named Entity to the tokens NE hierarchy
-				for (Token coveredToken : coveredTokens) {
-					ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(coveredToken);
-					namedEntityStringTreeMap.add(getConllFeatures(namedEntity, coveredToken));
-				}
-				visitedTokens.addAll(coveredTokens);
+				addToHierarchy(namedEntity, coveredTokens, tokens);
+				setAll(visitedTokens, coveredTokens);
 				visitedEntities.add(namedEntity);
 			}
 			
@@ -314,59 +583,119 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 				rankSet.removeAll(visitedEntities);
 				for (T namedEntity : rankSetBDSearch) {
 					// Get all tokens covered by this NE
-					ArrayList<Token> coveredTokens = new ArrayList<>(tokenNeIndex.get(namedEntity));
+					int[] coveredTokens = coveredTokenOrdinals.computeIfAbsent(namedEntity, tokenOffsetIndex::coveredOrdinals);
 					// Check if any covered token is already covered by another NE annotation
-					if (!coveredTokens.isEmpty() && coveredTokens.stream().anyMatch(visitedTokens::contains))
+					if (anySet(visitedTokens, coveredTokens))
 						continue;
 					// If its not already covered, add this Named Entity to the tokens NE hierarchy
-					for (Token coveredToken : coveredTokens) {
-						ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(coveredToken);
-						namedEntityStringTreeMap.add(getConllFeatures(namedEntity, coveredToken));
-					}
-					visitedTokens.addAll(coveredTokens);
+					addToHierarchy(namedEntity, coveredTokens, tokens);
+					setAll(visitedTokens, coveredTokens);
 					visitedEntities.add(namedEntity);
 				}
 			}
 			
 			// Iterate over all tokens, that have not been covered in this iteration
 			// and fill their hierarchy with an "O". This levels all
-			ArrayList<Token> notCoveredTokens = new ArrayList<>(tokens);
-			notCoveredTokens.removeAll(visitedTokens);
-			for (Token notCoveredToken : notCoveredTokens) {
-				ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(notCoveredToken);
-				namedEntityStringTreeMap.add(getEmptyConllFeatures());
+			for (int k = visitedTokens.nextClearBit(0); k < tokens.size(); k = visitedTokens.nextClearBit(k + 1)) {
+				labelMatrix.append(k, emptyLabelId);
 			}
 		}
 		
 		// Check if the last level of the hierarchy is empty and can be removed
 		// TODO: Can other levels of the hierarchy be empty too and should be removed, too?
 		int lastIndex = rankSets.size() - 1;
-		if (lastIndex >= 0 && hierachialTokenNamedEntityMap.values().stream().allMatch(l -> l.get(lastIndex).equals(getEmptyConllFeatures())))
-			hierachialTokenNamedEntityMap.values().forEach(l -> l.remove(lastIndex));
+		if (iterations == rankSets.size() && lastIndex >= 0 && isLevelEmpty(lastIndex))
+			labelMatrix.removeLevel(lastIndex);
+	}
+	
+	private void addToHierarchy(T namedEntity, int[] coveredTokens, ArrayList<Token> tokens) {
+		for (int ordinal : coveredTokens) {
+			addToHierarchy(ordinal, getConllFeatures(namedEntity, tokens.get(ordinal)));
+		}
+	}
+	
+	/**
+	 * @return True, if the label of every token at the given level of the hierarchy equals the empty features,
+	 * regardless of its tag.
+	 */
+	private boolean isLevelEmpty(int level) {
+		IConllFeatures emptyConllFeatures = getEmptyConllFeatures();
+		BitSet checkedLabels = new BitSet(labelDictionary.size());
+		for (int token = 0; token < labelMatrix.tokenCount(); token++) {
+			int labelId = labelMatrix.get(level, token);
+			if (!checkedLabels.get(labelId)) {
+				if (!isEmptyLabel(labelDictionary.get(labelId), emptyConllFeatures))
+					return false;
+				checkedLabels.set(labelId);
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isEmptyLabel(IConllFeatures features, IConllFeatures emptyConllFeatures) {
+		if (features instanceof InternedConllFeatures)
+			return ((InternedConllFeatures) features).untagged() == emptyConllFeatures;
+		return features.equals(emptyConllFeatures);
+	}
+	
+	/**
+	 * @param bitSet   The set to check.
+	 * @param ordinals An ascending array of ordinals.
+	 * @return True, if any of the given ordinals is set.
+	 */
+	static boolean anySet(BitSet bitSet, int[] ordinals) {
+		if (ordinals.length == 0)
+			return false;
+		int first = ordinals[0];
+		int last = ordinals[ordinals.length - 1];
+		if (last - first + 1 == ordinals.length) {
+			// The ordinals form a contiguous range
+			int next = bitSet.nextSetBit(first);
+			return next >= 0 && next <= last;
+		}
+		for (int ordinal : ordinals) {
+			if (bitSet.get(ordinal))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @param bitSet   The set to update.
+	 * @param ordinals An ascending array of ordinals to set.
+	 */
+	static void setAll(BitSet bitSet, int[] ordinals) {
+		if (ordinals.length == 0)
+			return;
+		int first = ordinals[0];
+		int last = ordinals[ordinals.length - 1];
+		if (last - first + 1 == ordinals.length) {
+			bitSet.set(first, last + 1);
+		} else {
+			for (int ordinal : ordinals) {
+				bitSet.set(ordinal);
+			}
+		}
 	}
 	
 	/**
-	 * Compute the coverage for each hierarchy level and list the level indices sorted by their respective coverage.
+	 * List the hierarchy level indices sorted by their coverage, the number of tokens with a tag on each level, in
+	 * descending order. Levels with equal coverage are ordered by descending index. The coverage is tracked by the
+	 * {@link LabelMatrix} while the hierarchy is built.
 	 */
 	public void createMaxCoverageLookup() {
-		Optional<ArrayList<IConllFeatures>> optionalArrayList = hierachialTokenNamedEntityMap.values().stream().findAny();
 		maxCoverageOrder = new ArrayList<>();
-		if (optionalArrayList.isPresent()) {
-			int size = optionalArrayList.get().size();
-			coverageCount = IntStream.range(0, size).boxed()
-					.collect(Collectors.toMap(
-							Function.identity(),
-							i -> hierachialTokenNamedEntityMap.values().stream()
-									.filter(l -> !l.get(i).isOut())
-									.count(),
-							(u, v) -> u,
-							LinkedHashMap::new));
-			maxCoverageOrder.addAll(
-					coverageCount.entrySet().stream().sequential()
-							.sorted(Comparator.comparingLong(Map.Entry::getValue))
-							.mapToInt(Map.Entry::getKey).boxed()
-							.collect(Collectors.toList()));
-			Collections.reverse(maxCoverageOrder);
+		if (labelMatrix.tokenCount() > 0) {
+			int size = labelMatrix.levelCount();
+			// Sort by coverage, then by level, in a single primitive array
+			long[] keys = new long[size];
+			for (int level = 0; level < size; level++) {
+				keys[level] = (long) labelMatrix.coverage(level) << 32 | level;
+			}
+			Arrays.sort(keys);
+			for (int i = size - 1; i >= 0; i--) {
+				maxCoverageOrder.add((int) keys[i]);
+			}
 		} else {
 			maxCoverageOrder.add(0);
 		}
@@ -380,7 +709,7 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 * {@link JCasUtil#select(JCas, Class)}.
 	 * </p><p>
 	 * For each rank, get all token covered by a NE and add the BIO code to the tokens hierarchy in the {@link
-	 * DKProHierarchicalIobEncoder#hierachialTokenNamedEntityMap}. At the end of each iteration over a rank, add an "O"
+	 * DKProHierarchicalIobEncoder#labelMatrix}. At the end of each iteration over a rank, add an "O"
 	 * to all not covered tokens.
 	 * </p><p>
 	 * This approach will <b>not</b> "fill" holes created by three or more annotations overlapping, ie. given:
@@ -400,29 +729,23 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 * @see DKProHierarchicalIobEncoder#breadthFirstSearch(JCas, ArrayList) breadthFirstSearch(JCas, ArrayList)
 	 */
 	public void naiveStackingApproach(JCas jCas, ArrayList<Token> tokens) {
-		Map<T, Collection<Token>> tokenNeIndex = indexCovered(jCas, this.type, Token.class);
+		// A set to collect all tokens, that have been covered by an annotation
+		BitSet rankCoveredTokens = new BitSet(tokens.size());
 		for (TreeSet<T> rankSet : namedEntityByRank.values()) {
-			// A set to collect all tokens, that have been covered by an annotation
-			HashSet<Token> rankCoveredTokens = new HashSet<>();
+			rankCoveredTokens.clear();
 			
 			for (T namedEntity : rankSet) {
 				// Get all tokens covered by this NE
-				Collection<Token> coveredTokens = tokenNeIndex.get(namedEntity);
+				int[] coveredTokens = tokenOffsetIndex.coveredOrdinals(namedEntity);
 				// Add this Named Entity to the tokens NE hierarchy
-				for (Token coveredToken : coveredTokens) {
-					ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(coveredToken);
-					namedEntityStringTreeMap.add(getConllFeatures(namedEntity, coveredToken));
-				}
-				rankCoveredTokens.addAll(coveredTokens);
+				addToHierarchy(namedEntity, coveredTokens, tokens);
+				setAll(rankCoveredTokens, coveredTokens);
 			}
 			
 			// Iterate over all tokens, that have not been covered in this iteration
 			// and fill their hierarchy with an "O". This levels all
-			ArrayList<Token> notCoveredTokens = new ArrayList<>(tokens);
-			notCoveredTokens.removeAll(rankCoveredTokens);
-			for (Token notCoveredToken : notCoveredTokens) {
-				ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(notCoveredToken);
-				namedEntityStringTreeMap.add(getEmptyConllFeatures());
+			for (int k = rankCoveredTokens.nextClearBit(0); k < tokens.size(); k = rankCoveredTokens.nextClearBit(k + 1)) {
+				labelMatrix.append(k, emptyLabelId);
 			}
 		}
 	}
@@ -432,8 +755,14 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 		HashMap<Token, TreeSet<T>> tokenNeMap = new HashMap<>();
 		tokens.forEach(token -> tokenNeMap.put(token, new TreeSet<>(hierachialComparator)));
 		
-		Map<T, Collection<Token>> tokenNeIndex = indexCovered(jCas, type, Token.class);
-		tokenNeIndex.forEach((ne, tks) -> tks.forEach(tk -> tokenNeMap.get(tk).add(ne)));
+		HashMap<T, int[]> tokenNeIndex = new HashMap<>();
+		for (T namedEntity : namedEntityHierachy.keySet()) {
+			int[] coveredTokens = tokenOffsetIndex.coveredOrdinals(namedEntity);
+			tokenNeIndex.put(namedEntity, coveredTokens);
+			for (int ordinal : coveredTokens) {
+				tokenNeMap.get(tokens.get(ordinal)).add(namedEntity);
+			}
+		}
 		
 		HashSet<T> usedEntities = new HashSet<>();
 		
@@ -442,16 +771,14 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 			TreeSet<T> treeSet = tokenNeMap.get(curr_token);
 			treeSet.removeAll(usedEntities);
 			if (treeSet.isEmpty()) {
-				ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(curr_token);
-				namedEntityStringTreeMap.add(getEmptyConllFeatures());
+				labelMatrix.append(tokenOrdinalMap.get(curr_token), emptyLabelId);
 			} else {
 				for (T namedEntity : treeSet) {
 					if (usedEntities.contains(namedEntity)) continue;
 					else usedEntities.add(namedEntity);
-					for (Token coveredToken : tokenNeIndex.get(namedEntity)) { // FIXME: greift zurück, soll aber einen Konflikt finden!
-						curr_token = coveredToken;
-						ArrayList<IConllFeatures> namedEntityStringTreeMap = hierachialTokenNamedEntityMap.get(curr_token);
-						namedEntityStringTreeMap.add(getConllFeatures(namedEntity, curr_token));
+					for (int ordinal : tokenNeIndex.get(namedEntity)) { // FIXME: greift zurück, soll aber einen Konflikt finden!
+						curr_token = tokens.get(ordinal);
+						addToHierarchy(tokenOrdinalMap.get(curr_token), getConllFeatures(namedEntity, curr_token));
 					}
 					
 					break;
@@ -470,33 +797,43 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	 * @return
 	 */
 	public IConllFeatures getConllFeatures(T namedEntity, Token token) {
-		IConllFeatures features = getEmptyConllFeatures();
+		String name;
 		if (namedEntity instanceof org.texttechnologylab.annotation.AbstractNamedEntity) {
-			features.name(namedEntity.getType().getShortName());
+			name = namedEntity.getType().getShortName();
 		} else if (namedEntity instanceof org.texttechnologylab.annotation.type.Other) {
-			features.name(namedEntity.getType().getShortName());
+			name = namedEntity.getType().getShortName();
 		} else if (namedEntity instanceof org.texttechnologylab.annotation.NamedEntity) {
-			features.name(namedEntity.getType().getShortName());
+			name = namedEntity.getType().getShortName();
 		} else if (namedEntity instanceof de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity) {
 			String value = ((de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity) namedEntity).getValue();
 			if (value == null) {
-				features.name(namedEntity.getType().getShortName().substring(0, 3).toUpperCase()); // FIXME
+				name = namedEntity.getType().getShortName().substring(0, 3).toUpperCase(); // FIXME
 			} else {
-				features.name(value);
+				name = value;
 			}
 		} else if (namedEntity instanceof TexttechnologyNamedEntity) {
-			features.name(((TexttechnologyNamedEntity) namedEntity).getValue());
+			name = ((TexttechnologyNamedEntity) namedEntity).getValue();
 		} else {
-			features.name("<UNK>");
+			name = "<UNK>";
 		}
+		return getTaggedFeatures(featureVocabulary.of(name, InternedConllFeatures.NO_FLAGS), namedEntity, token);
+	}
+	
+	/**
+	 * @param features    The untagged features of the given NE.
+	 * @param namedEntity The NE covering the given token.
+	 * @param token       The token to get the features for.
+	 * @return The shared features tagged with "B-" or "I-", depending on the position of the token in the NE, or the
+	 * {@link #getEmptyConllFeatures() empty features}, if the name of the features is invalid.
+	 */
+	IConllFeatures getTaggedFeatures(InternedConllFeatures features, Annotation namedEntity, Token token) {
 		if (features.isNameInvalid())
-			return new SingleConllFeatures("O");
+			return getEmptyConllFeatures();
 		if (namedEntity.getBegin() == token.getBegin() == useIOB2) {
-			features.prependTag("B-");
+			return features.begin();
 		} else {
-			features.prependTag("I-");
+			return features.inside();
 		}
-		return features;
 	}
 	
 	public ArrayList<String> getFeatures(Token token) {
@@ -504,7 +841,7 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	}
 	
 	public ArrayList<String> getFeatures(int index, int strategyIndex) {
-		return getFeatures(tokenIndexMap.get(index), Strategy.byIndex(strategyIndex));
+		return getFeaturesForNColumns(index, Strategy.byIndex(strategyIndex), 1);
 	}
 	
 	public ArrayList<String> getFeatures(Token token, int strategyIndex) {
@@ -520,47 +857,178 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 	}
 	
 	public ArrayList<String> getFeaturesForNColumns(Token token, Strategy strategy, int nColumns) {
+		Integer tokenOrdinal = tokenOrdinalMap.get(token);
+		if (tokenOrdinal == null) return new ArrayList<>();
+		return getFeaturesForNColumns(tokenOrdinal, strategy, nColumns);
+	}
+	
+	/**
+	 * Get the features of the token with the given ordinal for the given number of hierarchy levels, selected by the
+	 * given strategy.
+	 *
+	 * @param tokenOrdinal The index of the token in the {@link #mergedCas}.
+	 * @param strategy     The strategy to select the hierarchy levels by.
+	 * @param nColumns     The maximum number of hierarchy levels.
+	 * @return The concatenated features of all selected levels.
+	 */
+	public ArrayList<String> getFeaturesForNColumns(int tokenOrdinal, Strategy strategy, int nColumns) {
 		ArrayList<String> retList = new ArrayList<>();
-		
-		ArrayList<IConllFeatures> IConllFeatures = hierachialTokenNamedEntityMap.get(token);
-		if (IConllFeatures == null) return retList;
-		for (int i = 0; i < Math.min(nColumns, IConllFeatures.size()); i++) {
-			try {
-				switch (strategy) {
-					case TopFirstBottomUp:
-						strategy = Strategy.BottomUp;
-					case TopDown:
-						retList.addAll(IConllFeatures.get(i).build());
-						break;
-					case BottomUp:
-						retList.addAll(Lists.reverse(IConllFeatures).get(i).build());
-						break;
-					case MaxCoverage:
-						if (i < maxCoverageOrder.size()) {
-							Integer index = maxCoverageOrder.get(i);
-							retList.addAll(IConllFeatures.get(index).build());
-						} else {
-							retList.addAll(getEmptyConllFeatures().build());
-						}
-				}
-			} catch (NullPointerException e) {
-				e.printStackTrace();
-				retList.addAll(getEmptyConllFeatures().build());
-			}
-		}
-		
+		addFeaturesForNColumns(tokenOrdinal, strategy, nColumns, retList);
 		return retList;
 	}
 	
+	/**
+	 * Add the features of {@link #getFeaturesForNColumns(int, Strategy, int)} to the given list, such that a writer may
+	 * reuse one list for all tokens. The added strings are shared by all tokens with the same label.
+	 */
+	public void addFeaturesForNColumns(int tokenOrdinal, Strategy strategy, int nColumns, List<String> features) {
+		if (labelMatrix == null || tokenOrdinal < 0 || tokenOrdinal >= labelMatrix.tokenCount()) return;
+		int depth = labelMatrix.depth(tokenOrdinal);
+		for (int i = 0; i < Math.min(nColumns, depth); i++) {
+			int level = getLevel(i, depth, strategy, maxCoverageOrder);
+			features.addAll(labelDictionary.getBuilt(level < 0 ? emptyLabelId : labelMatrix.get(level, tokenOrdinal)));
+		}
+	}
+	
+	/**
+	 * Add the tag of each hierarchy level selected as by {@link #getFeaturesForNColumns(int, Strategy, int)} to the
+	 * given list, i.e. only the first feature of each level, without its further features such as the flags of the
+	 * TTLab CoNLL features. Thus, exactly one tag is added for each column up to the depth of the token.
+	 */
+	public void addTagsForNColumns(int tokenOrdinal, Strategy strategy, int nColumns, List<String> tags) {
+		if (labelMatrix == null || tokenOrdinal < 0 || tokenOrdinal >= labelMatrix.tokenCount()) return;
+		int depth = labelMatrix.depth(tokenOrdinal);
+		for (int i = 0; i < Math.min(nColumns, depth); i++) {
+			int level = getLevel(i, depth, strategy, maxCoverageOrder);
+			tags.add(labelDictionary.getBuilt(level < 0 ? emptyLabelId : labelMatrix.get(level, tokenOrdinal)).get(0));
+		}
+	}
+	
+	/**
+	 * Select the hierarchy level of a token that is written to the given column.
+	 * <p>
+	 * {@link Strategy#TopFirstBottomUp} writes the top level to the first column and continues bottom-up with the
+	 * second column, {@link Strategy#MaxCoverage} writes the levels in the given order and no level, if the token is
+	 * not as deep as the level of the column.
+	 * </p>
+	 *
+	 * @param column           The column, less than the given depth.
+	 * @param depth            The number of hierarchy levels of the token.
+	 * @param strategy         The strategy to select the level by.
+	 * @param maxCoverageOrder The hierarchy levels ordered by their coverage, may be null.
+	 * @return The selected level or -1, if the column is to be filled with the empty label.
+	 */
+	static int getLevel(int column, int depth, Strategy strategy, List<Integer> maxCoverageOrder) {
+		switch (strategy) {
+			case TopFirstBottomUp:
+				return column == 0 ? 0 : depth - 1 - column;
+			case TopDown:
+				return column;
+			case BottomUp:
+				return depth - 1 - column;
+			case MaxCoverage:
+			default:
+				if (maxCoverageOrder != null && column < maxCoverageOrder.size() && maxCoverageOrder.get(column) < depth)
+					return maxCoverageOrder.get(column);
+				return -1;
+		}
+	}
+	
+	/**
+	 * @param strategy The strategy to select the hierarchy levels by.
+	 * @param nColumns The number of columns.
+	 * @return The number of top levels of the hierarchy that determine the projection with the given strategy onto
+	 * the given number of columns, or {@link Integer#MAX_VALUE} if the projection depends on the depth or coverage of
+	 * all levels.
+	 */
+	static int getRequiredLevels(Strategy strategy, int nColumns) {
+		switch (strategy) {
+			case TopDown:
+				return Math.max(1, nColumns);
+			case TopFirstBottomUp:
+				return nColumns <= 1 ? 1 : Integer.MAX_VALUE;
+			default:
+				return Integer.MAX_VALUE;
+		}
+	}
+	
+	/**
+	 * Declare a projection of the hierarchy that will be requested by {@link #getFeaturesForNColumns(int, Strategy,
+	 * int)}, before {@link #build() building} the encoder. Once any projection is declared, only the hierarchy levels
+	 * and the coverage order required by the declared projections are built: for example, {@link Strategy#TopDown}
+	 * onto a single column only requires the top level, while {@link Strategy#BottomUp} and {@link
+	 * Strategy#MaxCoverage} require the whole hierarchy. Other projections of the built encoder are undefined. If no
+	 * projection is declared, the whole hierarchy is built.
+	 *
+	 * @param strategy The strategy to select the hierarchy levels by.
+	 * @param nColumns The number of columns.
+	 */
+	public void requireProjection(Strategy strategy, int nColumns) {
+		int requiredLevels = getRequiredLevels(strategy, nColumns);
+		boolean requiresCoverage = strategy == Strategy.MaxCoverage;
+		if (projectionRequired) {
+			levelLimit = Math.max(levelLimit, requiredLevels);
+			countCoverage |= requiresCoverage;
+		} else {
+			levelLimit = requiredLevels;
+			countCoverage = requiresCoverage;
+			projectionRequired = true;
+		}
+	}
+	
+	/**
+	 * @param token A token of the {@link #getMergedCas() merged CAS}.
+	 * @return The ordinal of the given token or -1, if the token is unknown.
+	 */
+	public int getTokenOrdinal(Token token) {
+		return tokenOrdinalMap.getOrDefault(token, -1);
+	}
+	
 	@NotNull
 	IConllFeatures getEmptyConllFeatures() {
-		return new SingleConllFeatures();
+		return InternedConllFeatures.EMPTY;
 	}
 	
 	public JCas getMergedCas() {
 		return mergedCas;
 	}
 	
+	/**
+	 * Use the given CAS for the merged views, for example one {@link MergedCasPool#acquire() acquired} from a {@link
+	 * MergedCasPool}. The CAS will be reset by {@link #build()}. If no CAS is set, a new one will be created.
+	 *
+	 * @param mergedCas A CAS with a type system containing all types of the {@link #jCas}.
+	 */
+	public void setMergedCas(JCas mergedCas) {
+		this.mergedCas = mergedCas;
+	}
+	
+	/**
+	 * Intern the features in the given vocabulary, for example one shared by all encoders of a writer, such that the
+	 * features of a name seen in a previous document are reused. If no vocabulary is set, each encoder uses its own.
+	 *
+	 * @param featureVocabulary A vocabulary that is released together with its owner.
+	 */
+	public void setFeatureVocabulary(InternedConllFeatures.Vocabulary featureVocabulary) {
+		this.featureVocabulary = featureVocabulary;
+	}
+	
+	/**
+	 * Reset the {@link #mergedCas} or create a new one with the {@link MergedCasPool#getTypeSystemDescription() cached
+	 * type system}, if none has been set.
+	 */
+	void resetMergedCas() throws UIMAException {
+		if (mergedCas == null) {
+			mergedCas = MergedCasPool.createMergedCas();
+		} else {
+			mergedCas.reset();
+		}
+	}
+	
+	public int getRemovedSubTokenCount() {
+		return removedSubTokenCount;
+	}
+	
 	public int getNamedEntitiyCount() {
 		return Objects.isNull(namedEntityHierachy) ? 0 : namedEntityHierachy.size();
 	}
@@ -604,6 +1072,14 @@ public abstract class GenericIobEncoder<T extends Annotation> {
 		this.annotatorRelation = annotatorRelation;
 	}
 	
+	public void setUseSweepLineRanking(boolean useSweepLineRanking) {
+		this.useSweepLineRanking = useSweepLineRanking;
+	}
+	
+	public void setUseProjectionMerge(boolean useProjectionMerge) {
+		this.useProjectionMerge = useProjectionMerge;
+	}
+	
 	public Logger getLogger() {
 		return logger;
 	}
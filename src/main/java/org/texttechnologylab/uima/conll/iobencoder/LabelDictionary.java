@@ -0,0 +1,79 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import org.texttechnologylab.uima.conll.extractor.IConllFeatures;
+import org.texttechnologylab.uima.conll.extractor.InternedConllFeatures;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Interns {@link IConllFeatures} by their built representation and assigns a dense integer id to each distinct label.
+ * Labels are stored once and referenced by their id from the {@link LabelMatrix}.
+ * <p>
+ * Shared {@link InternedConllFeatures} are looked up by identity, without building them.
+ * </p>
+ */
+final class LabelDictionary {
+	
+	private final ArrayList<IConllFeatures> labels = new ArrayList<>();
+	private final ArrayList<List<String>> builtLabels = new ArrayList<>();
+	private final HashMap<List<String>, Integer> labelIds = new HashMap<>();
+	private final IdentityHashMap<InternedConllFeatures, Integer> internedLabelIds = new IdentityHashMap<>();
+	
+	/**
+	 * The ids of all labels that are {@link IConllFeatures#isOut() out}.
+	 */
+	private final BitSet outLabels = new BitSet();
+	
+	/**
+	 * @param features The features to intern. Must not be modified afterwards.
+	 * @return The id of the given features.
+	 */
+	int intern(IConllFeatures features) {
+		if (features instanceof InternedConllFeatures) {
+			Integer id = internedLabelIds.get(features);
+			if (id == null) {
+				id = internByBuilt(features);
+				internedLabelIds.put((InternedConllFeatures) features, id);
+			}
+			return id;
+		}
+		return internByBuilt(features);
+	}
+	
+	private int internByBuilt(IConllFeatures features) {
+		List<String> built = features.build();
+		Integer id = labelIds.get(built);
+		if (id == null) {
+			id = labels.size();
+			labels.add(features);
+			if (features.isOut())
+				outLabels.set(id);
+			builtLabels.add(built);
+			labelIds.put(built, id);
+		}
+		return id;
+	}
+	
+	IConllFeatures get(int id) {
+		return labels.get(id);
+	}
+	
+	/**
+	 * @return The result of {@link IConllFeatures#build()} for the label with the given id. Must not be modified.
+	 */
+	List<String> getBuilt(int id) {
+		return builtLabels.get(id);
+	}
+	
+	boolean isOut(int id) {
+		return outLabels.get(id);
+	}
+	
+	int size() {
+		return labels.size();
+	}
+}
@@ -0,0 +1,144 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import java.util.Arrays;
+
+/**
+ * A columnar store of the NE hierarchy, holding one label id of a {@link LabelDictionary} for each hierarchy level and
+ * token ordinal.
+ * <p>
+ * Each level is a primitive array over all tokens, such that the labels of consecutive tokens are stored next to each
+ * other. As a token may receive more than one label per rank, if it is covered by overlapping NEs of the same rank,
+ * the number of labels is tracked for each token individually. Labels are always appended to the first free level of
+ * a token, just like appending to a list.
+ * </p><p>
+ * The number of labels on each level that are not {@link LabelDictionary#isOut(int) out} is updated with every
+ * change, such that the coverage of the levels is known without another pass over the tokens.
+ * </p>
+ */
+final class LabelMatrix {
+	
+	private final int tokenCount;
+	private final LabelDictionary labelDictionary;
+	private final int[] depth;
+	private int[][] levels;
+	private int[] coverage;
+	private int levelCount = 0;
+	
+	/**
+	 * @param tokenCount      The number of tokens.
+	 * @param labelDictionary The dictionary of all label ids stored in this matrix.
+	 */
+	LabelMatrix(int tokenCount, LabelDictionary labelDictionary) {
+		this.tokenCount = tokenCount;
+		this.labelDictionary = labelDictionary;
+		this.depth = new int[tokenCount];
+		this.levels = new int[4][];
+		this.coverage = new int[4];
+	}
+	
+	/**
+	 * Create a matrix with the given number of levels for each token, all filled with the given label.
+	 */
+	static LabelMatrix filled(int tokenCount, int levelCount, int labelId, LabelDictionary labelDictionary) {
+		LabelMatrix labelMatrix = new LabelMatrix(tokenCount, labelDictionary);
+		boolean covered = !labelDictionary.isOut(labelId);
+		for (int level = 0; level < levelCount; level++) {
+			int[] labels = labelMatrix.getOrCreateLevel(level);
+			Arrays.fill(labels, labelId);
+			if (covered)
+				labelMatrix.coverage[level] = tokenCount;
+		}
+		Arrays.fill(labelMatrix.depth, levelCount);
+		return labelMatrix;
+	}
+	
+	/**
+	 * Append the given label to the labels of the given token.
+	 */
+	void append(int token, int labelId) {
+		int level = depth[token]++;
+		getOrCreateLevel(level)[token] = labelId;
+		count(level, labelId, 1);
+	}
+	
+	/**
+	 * Replace the label of the given token on the given level.
+	 */
+	void set(int level, int token, int labelId) {
+		if (level >= depth[token])
+			throw new IndexOutOfBoundsException(String.format("Level %d is out of bounds for token %d!", level, token));
+		count(level, levels[level][token], -1);
+		levels[level][token] = labelId;
+		count(level, labelId, 1);
+	}
+	
+	int get(int level, int token) {
+		if (level >= depth[token])
+			throw new IndexOutOfBoundsException(String.format("Level %d is out of bounds for token %d!", level, token));
+		return levels[level][token];
+	}
+	
+	/**
+	 * @return The number of labels of the given token.
+	 */
+	int depth(int token) {
+		return depth[token];
+	}
+	
+	/**
+	 * @return The maximum number of labels of any token.
+	 */
+	int levelCount() {
+		return levelCount;
+	}
+	
+	int tokenCount() {
+		return tokenCount;
+	}
+	
+	/**
+	 * @return The number of tokens whose label on the given level is not {@link LabelDictionary#isOut(int) out}.
+	 */
+	int coverage(int level) {
+		return level < levelCount ? coverage[level] : 0;
+	}
+	
+	/**
+	 * Remove the label at the given level from all tokens that have one, shifting all following labels of the token
+	 * up by one level.
+	 */
+	void removeLevel(int level) {
+		for (int token = 0; token < tokenCount; token++) {
+			if (depth[token] <= level)
+				continue;
+			count(level, levels[level][token], -1);
+			for (int i = level + 1; i < depth[token]; i++) {
+				count(i, levels[i][token], -1);
+				levels[i - 1][token] = levels[i][token];
+				count(i - 1, levels[i][token], 1);
+			}
+			depth[token]--;
+		}
+		levelCount = 0;
+		for (int d : depth) {
+			levelCount = Math.max(levelCount, d);
+		}
+	}
+	
+	private void count(int level, int labelId, int delta) {
+		if (!labelDictionary.isOut(labelId))
+			coverage[level] += delta;
+	}
+	
+	private int[] getOrCreateLevel(int level) {
+		if (level >= levels.length) {
+			levels = Arrays.copyOf(levels, Math.max(levels.length * 2, level + 1));
+			coverage = Arrays.copyOf(coverage, levels.length);
+		}
+		if (levels[level] == null) {
+			levels[level] = new int[tokenCount];
+		}
+		levelCount = Math.max(levelCount, level + 1);
+		return levels[level];
+	}
+}
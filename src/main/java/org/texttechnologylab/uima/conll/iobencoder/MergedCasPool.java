@@ -0,0 +1,71 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of reusable CASes for the merged views of the {@link GenericIobEncoder encoders}.
+ * <p>
+ * All CASes are created from a single {@link TypeSystemDescription}, which is detected from the classpath only once
+ * per JVM, instead of once for each call to {@link JCasFactory#createJCas()}. {@link #acquire()} never blocks: if no
+ * idle CAS is available, a new one is created. At most {@code capacity} CASes are kept for reuse, additional CASes
+ * passed to {@link #release(JCas)} are left to the garbage collector.
+ * </p>
+ */
+public class MergedCasPool {
+	
+	private static TypeSystemDescription typeSystemDescription;
+	
+	private final ArrayBlockingQueue<JCas> idleCases;
+	
+	/**
+	 * @param capacity The maximum number of idle CASes to keep, should be at least the number of threads using this
+	 *                 pool.
+	 */
+	public MergedCasPool(int capacity) {
+		this.idleCases = new ArrayBlockingQueue<>(Math.max(1, capacity));
+	}
+	
+	/**
+	 * @return The type system detected from the classpath, created on the first call.
+	 */
+	public static synchronized TypeSystemDescription getTypeSystemDescription() throws ResourceInitializationException {
+		if (typeSystemDescription == null) {
+			typeSystemDescription = TypeSystemDescriptionFactory.createTypeSystemDescription();
+		}
+		return typeSystemDescription;
+	}
+	
+	/**
+	 * Create a new CAS with the {@link #getTypeSystemDescription() cached type system}.
+	 */
+	public static JCas createMergedCas() throws UIMAException {
+		return JCasFactory.createJCas(getTypeSystemDescription());
+	}
+	
+	/**
+	 * @return An empty CAS, either reused from the pool or newly created.
+	 */
+	public JCas acquire() throws UIMAException {
+		JCas jCas = idleCases.poll();
+		if (jCas == null)
+			return createMergedCas();
+		return jCas;
+	}
+	
+	/**
+	 * Reset the given CAS and return it to the pool. The CAS must not be used by the caller afterwards.
+	 */
+	public void release(JCas jCas) {
+		if (jCas == null)
+			return;
+		jCas.reset();
+		idleCases.offer(jCas);
+	}
+}
@@ -0,0 +1,79 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.texttechnologylab.utilities.collections.CountMap;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Assigns hierarchy ranks to Named Entities in a single sweep over the entities in annotation index order.
+ * <p>
+ * The ranks are identical to those created by calling {@link JCasUtil#subiterate(JCas, Class, Annotation, boolean,
+ * boolean) subiterate(jCas, type, parent, true, false)} for each parent entity in index order and setting the rank of
+ * every returned child to the rank of its parent + 1. Such a subiteration returns all entities that follow the parent
+ * in the index and begin before or at its end. As later parents overwrite the ranks set by earlier ones, the rank of
+ * an entity is determined by the <i>last</i> preceding parent that reaches it.
+ * </p><p>
+ * This parent is found using a stack of previously visited parents, ordered by descending end offset. As the begin
+ * offsets of the visited entities never decrease, parents that end before the current entity can be discarded for
+ * good. Thus each entity is pushed and popped at most once, resulting in {@code O(n)} runtime for sorted input instead
+ * of one index subiteration per entity.
+ * </p>
+ */
+final class SweepLineRanker {
+	
+	private SweepLineRanker() {
+	}
+	
+	/**
+	 * Update the rank of each entity in the given list, that is reached by a parent entity, to the parents rank + 1.
+	 * Entities that are not reached by any parent keep their current rank.
+	 *
+	 * @param entities   The entities to rank, sorted by the given index order.
+	 * @param indexOrder The comparator of the annotation index. Entities comparing equal do not reach each other.
+	 * @param isParent   A predicate selecting the entities that are considered as parents.
+	 * @param hierarchy  The hierarchy holding the current rank of all given entities, which will be updated.
+	 * @param <T>        The entity type.
+	 */
+	static <T extends Annotation> void rank(List<T> entities, Comparator<? super T> indexOrder, Predicate<? super T> isParent, CountMap<T> hierarchy) {
+		ArrayDeque<T> parentStack = new ArrayDeque<>();
+		int groupBegin = 0;
+		for (int i = 0; i < entities.size(); i++) {
+			T entity = entities.get(i);
+			
+			// Entities that compare equal in the index do not reach each other,
+			// so parents are only pushed once the group of equal entities is complete
+			if (i > 0 && indexOrder.compare(entities.get(i - 1), entity) != 0) {
+				for (int j = groupBegin; j < i; j++) {
+					push(parentStack, entities.get(j), isParent);
+				}
+				groupBegin = i;
+			}
+			
+			// Discard all parents that end before this entity begins, they can not reach any following entity
+			while (!parentStack.isEmpty() && parentStack.peek().getEnd() < entity.getBegin()) {
+				parentStack.pop();
+			}
+			
+			if (!parentStack.isEmpty()) {
+				hierarchy.put(entity, hierarchy.get(parentStack.peek()) + 1);
+			}
+		}
+	}
+	
+	private static <T extends Annotation> void push(ArrayDeque<T> parentStack, T entity, Predicate<? super T> isParent) {
+		if (!isParent.test(entity))
+			return;
+		
+		// Any parent that does not end after this entity is shadowed by it for all following entities
+		while (!parentStack.isEmpty() && parentStack.peek().getEnd() <= entity.getEnd()) {
+			parentStack.pop();
+		}
+		parentStack.push(entity);
+	}
+}
@@ -7,15 +7,12 @@ import org.apache.uima.UIMAException;
 import org.apache.uima.cas.Type;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
-import org.jetbrains.annotations.NotNull;
 import org.texttechnologylab.annotation.AbstractNamedEntity;
 import org.texttechnologylab.annotation.NamedEntity;
-import org.texttechnologylab.uima.conll.extractor.IConllFeatures;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static org.apache.uima.fit.util.JCasUtil.indexCovered;
 import static org.apache.uima.fit.util.JCasUtil.select;
 
 public class TTLabOneColumnPerClassEncoder extends TTLabHierarchicalIobEncoder {
@@ -69,24 +66,19 @@ public class TTLabOneColumnPerClassEncoder extends TTLabHierarchicalIobEncoder {
 			}
 			
 			getLogger().debug("Initializing hierarchy");
-			// Create an empty list for all layers of NEs for each Token
+			// Create an empty column for each NE type for each Token
 			ArrayList<Token> tokens = new ArrayList<>(select(mergedCas, Token.class));
-			for (int i = 0; i < tokens.size(); i++) {
-				Token token = tokens.get(i);
-				tokenIndexMap.put(i, token);
-				hierachialTokenNamedEntityMap.put(token, getEmptyConllFeatureList());
-			}
-			
-			getLogger().debug("Building indices");
-			Map<Annotation, Collection<Token>> tokenNeIndex = indexCovered(mergedCas, Annotation.class, Token.class);
+			initializeHierarchy(tokens);
+			labelMatrix = LabelMatrix.filled(tokens.size(), presentNamedEntityTypes.size(), emptyLabelId, labelDictionary);
 			
 			getLogger().debug("Populating hierarchy");
 			for (Annotation namedEntity : namedEntities) {
 				int index = presentNamedEntityTypes.indexOf(namedEntity.getType().getShortName());
 				if (index < 0)
 					continue;
-				for (Token coveredToken : tokenNeIndex.get(namedEntity)) {
-					hierachialTokenNamedEntityMap.get(coveredToken).set(index, getConllFeatures(namedEntity, coveredToken));
+				for (int ordinal : tokenOffsetIndex.coveredOrdinals(namedEntity)) {
+					int labelId = labelDictionary.intern(getConllFeatures(namedEntity, tokens.get(ordinal)));
+					labelMatrix.set(index, ordinal, labelId);
 				}
 			}
 		} catch (UIMAException e) {
@@ -94,23 +86,19 @@ public class TTLabOneColumnPerClassEncoder extends TTLabHierarchicalIobEncoder {
 		}
 	}
 	
-	@NotNull
-	ArrayList<IConllFeatures> getEmptyConllFeatureList() {
-		ArrayList<IConllFeatures> iConllFeatures = new ArrayList<>(presentNamedEntityTypes.size());
+	@Override
+	public void addFeaturesForNColumns(int tokenOrdinal, Strategy strategy, int nColumns, List<String> features) {
 		for (int i = 0; i < presentNamedEntityTypes.size(); i++) {
-			iConllFeatures.add(getEmptyConllFeatures());
+			features.addAll(labelDictionary.getBuilt(labelMatrix.get(i, tokenOrdinal)));
 		}
-		return iConllFeatures;
 	}
 	
-	public ArrayList<String> getFeaturesForNColumns(Token token, Strategy strategy, int nColumns) {
-		ArrayList<String> retList = new ArrayList<>();
-		for (int i = 0; i < presentNamedEntityTypes.size(); i++) {
-			ArrayList<IConllFeatures> iConllFeatures = this.hierachialTokenNamedEntityMap.get(token);
-			IConllFeatures conllFeatures = iConllFeatures.get(i);
-			retList.addAll(conllFeatures.build());
+	@Override
+	public void addTagsForNColumns(int tokenOrdinal, Strategy strategy, int nColumns, List<String> tags) {
+		if (labelMatrix == null || tokenOrdinal < 0 || tokenOrdinal >= labelMatrix.tokenCount()) return;
+		for (int i = 0; i < Math.min(nColumns, presentNamedEntityTypes.size()); i++) {
+			tags.add(labelDictionary.getBuilt(labelMatrix.get(i, tokenOrdinal)).get(0));
 		}
-		return retList;
 	}
 	
 	public int getNamedEntitiyCount() {
@@ -0,0 +1,102 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index of the begin and end offsets of a list of tokens in index order, addressed by token ordinal.
+ * <p>
+ * Resolves the tokens covered by an annotation, ie. all tokens with {@code begin >= annotation.begin} and {@code end
+ * <= annotation.end} as by {@link org.apache.uima.fit.util.JCasUtil#indexCovered(org.apache.uima.jcas.JCas, Class,
+ * Class) indexCovered}, by binary search. Once sub-tokens have been removed, the end offsets are sorted just like the
+ * begin offsets and the covered tokens form the contiguous ordinal range {@code [firstCovered, lastCovered)}. If any
+ * token is nested in another one, the tokens between the bounds are filtered by their end offsets instead.
+ * </p>
+ */
+final class TokenOffsetIndex {
+	
+	private static final int[] EMPTY = new int[0];
+	
+	private final int[] begins;
+	private final int[] ends;
+	private final boolean endsSorted;
+	
+	TokenOffsetIndex(List<Token> tokens) {
+		int size = tokens.size();
+		this.begins = new int[size];
+		this.ends = new int[size];
+		boolean endsSorted = true;
+		for (int i = 0; i < size; i++) {
+			Token token = tokens.get(i);
+			begins[i] = token.getBegin();
+			ends[i] = token.getEnd();
+			if (i > 0 && ends[i] < ends[i - 1])
+				endsSorted = false;
+		}
+		this.endsSorted = endsSorted;
+	}
+	
+	/**
+	 * @return The ordinal of the first token beginning at or after the given offset.
+	 */
+	int firstCovered(int begin) {
+		return lowerBound(begins, begin);
+	}
+	
+	/**
+	 * @return The ordinal after the last token ending at or before the given offset, if the end offsets are sorted.
+	 */
+	int lastCovered(int end) {
+		return lowerBound(ends, end + 1);
+	}
+	
+	/**
+	 * @param annotation The covering annotation.
+	 * @return The ascending ordinals of all tokens covered by the given annotation.
+	 */
+	int[] coveredOrdinals(Annotation annotation) {
+		int begin = annotation.getBegin();
+		int end = annotation.getEnd();
+		int first = firstCovered(begin);
+		if (endsSorted) {
+			int last = lastCovered(end);
+			if (last <= first)
+				return EMPTY;
+			int[] ordinals = new int[last - first];
+			for (int i = 0; i < ordinals.length; i++) {
+				ordinals[i] = first + i;
+			}
+			return ordinals;
+		} else {
+			int[] ordinals = new int[8];
+			int count = 0;
+			for (int i = first; i < begins.length && begins[i] <= end; i++) {
+				if (ends[i] <= end) {
+					if (count == ordinals.length)
+						ordinals = Arrays.copyOf(ordinals, count * 2);
+					ordinals[count++] = i;
+				}
+			}
+			return Arrays.copyOf(ordinals, count);
+		}
+	}
+	
+	/**
+	 * @return The first index in the given sorted array with a value greater or equal to the key.
+	 */
+	private static int lowerBound(int[] array, int key) {
+		int low = 0;
+		int high = array.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (array[mid] < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+}
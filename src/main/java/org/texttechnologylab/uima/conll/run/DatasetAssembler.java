@@ -0,0 +1,146 @@
+package org.texttechnologylab.uima.conll.run;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concatenates per-document CoNLL files into a training and a test file.
+ * <p>
+ * The files are appended byte by byte with {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel)}, without decoding and re-encoding their text, and both splits are written
+ * in parallel. The documents of each split are appended in the order of their ids.
+ * </p><p>
+ * GZIP compressed files, e.g. with the extension ".conll.gz", are handled alike: the concatenation of GZIP files is a
+ * valid multi-member GZIP file, which decompresses to the concatenation of their contents.
+ * </p>
+ */
+public class DatasetAssembler {
+	
+	private final File conllLocation;
+	private final String extension;
+	
+	/**
+	 * @param conllLocation The directory containing the per-document files.
+	 * @param extension     The extension of the per-document files and of the training and test file, e.g. ".conll".
+	 */
+	public DatasetAssembler(File conllLocation, String extension) {
+		this.conllLocation = conllLocation;
+		this.extension = extension;
+	}
+	
+	/**
+	 * Write the files "train" and "test" with the {@link #extension} to the given directory.
+	 *
+	 * @param datasetLocation The directory to write the training and test file to, created if necessary.
+	 * @param testIds         The ids of the documents that belong to the test split, i.e. their file names without
+	 *                        the extension. All other documents belong to the training split.
+	 * @return The assembled dataset, including the test ids for which no file exists.
+	 */
+	public Result assemble(File datasetLocation, Set<String> testIds) throws IOException {
+		return assemble(datasetLocation, testIds, true, true);
+	}
+	
+	/**
+	 * Write the file "train" and/or "test" with the {@link #extension} to the given directory, leaving the other one
+	 * untouched, e.g. if only documents of one split have changed since it was last assembled.
+	 *
+	 * @param writeTrain If true, write the training file.
+	 * @param writeTest  If true, write the test file.
+	 * @return The assembled dataset. The document counts refer to both splits, the bytes only to the written files.
+	 * @see #assemble(File, Set)
+	 */
+	public Result assemble(File datasetLocation, Set<String> testIds, boolean writeTrain, boolean writeTest) throws IOException {
+		TreeMap<String, Path> idPathMap = new TreeMap<>();
+		for (File file : Objects.requireNonNull(conllLocation.listFiles(), () -> String.format("'%s' is not a directory.", conllLocation))) {
+			if (file.isFile() && StringUtils.endsWith(file.getName(), extension)) {
+				idPathMap.putIfAbsent(StringUtils.removeEnd(file.getName(), extension), file.toPath());
+			}
+		}
+		
+		ArrayList<Path> testPaths = new ArrayList<>();
+		TreeSet<String> missingTestIds = new TreeSet<>();
+		for (String id : new TreeSet<>(testIds)) {
+			Path path = idPathMap.remove(id);
+			if (path != null)
+				testPaths.add(path);
+			else
+				missingTestIds.add(id);
+		}
+		ArrayList<Path> trainPaths = new ArrayList<>(idPathMap.values());
+		
+		Files.createDirectories(datasetLocation.toPath());
+		Path trainPath = datasetLocation.toPath().resolve("train" + extension);
+		Path testPath = datasetLocation.toPath().resolve("test" + extension);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Long> trainBytes = executor.submit(() -> writeTrain ? concatenate(trainPaths, trainPath) : 0L);
+			Future<Long> testBytes = executor.submit(() -> writeTest ? concatenate(testPaths, testPath) : 0L);
+			return new Result(trainPaths.size(), testPaths.size(), trainBytes.get() + testBytes.get(), missingTestIds);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while assembling the dataset.", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Write the concatenation of the given files to the target file.
+	 *
+	 * @return The number of written bytes.
+	 */
+	static long concatenate(Iterable<Path> sources, Path target) throws IOException {
+		long bytes = 0L;
+		try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Path source : sources) {
+				try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+					long size = sourceChannel.size();
+					long transferred = 0L;
+					while (transferred < size) {
+						transferred += sourceChannel.transferTo(transferred, size - transferred, targetChannel);
+					}
+					bytes += size;
+				}
+			}
+		}
+		return bytes;
+	}
+	
+	/**
+	 * The number of documents and bytes written by {@link #assemble(File, Set)}.
+	 */
+	public static final class Result {
+		public final int trainDocuments;
+		public final int testDocuments;
+		public final long bytes;
+		public final ImmutableSet<String> missingTestIds;
+		
+		Result(int trainDocuments, int testDocuments, long bytes, Set<String> missingTestIds) {
+			this.trainDocuments = trainDocuments;
+			this.testDocuments = testDocuments;
+			this.bytes = bytes;
+			this.missingTestIds = ImmutableSet.copyOf(missingTestIds);
+		}
+	}
+}
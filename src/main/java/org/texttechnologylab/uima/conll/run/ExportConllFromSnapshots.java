@@ -0,0 +1,125 @@
+package org.texttechnologylab.uima.conll.run;
+
+import org.apache.commons.cli.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer;
+import org.texttechnologylab.uima.conll.iobencoder.EncoderSnapshot;
+import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes CoNLL files from the {@link EncoderSnapshot EncoderSnapshots} stored by a previous export with {@link
+ * ConllBIO2003Writer#PARAM_SNAPSHOT_TARGET_LOCATION}, with another strategy, number of columns or tag, without
+ * reading the XMIs again.
+ */
+public class ExportConllFromSnapshots {
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption("h", "Print this message.");
+		
+		Option snapshotLocationOption = new Option("i", "input", true,
+				"Directory containing the encoder snapshots. Required.");
+		snapshotLocationOption.setRequired(true);
+		options.addOption(snapshotLocationOption);
+		
+		Option conllTargetLocationOption = new Option("o", "out", true,
+				"CoNLL file output directory. Required.");
+		conllTargetLocationOption.setRequired(true);
+		options.addOption(conllTargetLocationOption);
+		
+		Option strategyOption = new Option("strategy", true,
+				"Index of the strategy to select the hierarchy levels by: " +
+						"0 (TopFirstBottomUp), 1 (TopDown), 2 (BottomUp) or 3 (MaxCoverage). Default: 1.");
+		strategyOption.setRequired(false);
+		strategyOption.setType(Integer.class);
+		options.addOption(strategyOption);
+		
+		Option columnsOption = new Option("columns", true,
+				"Number of named entity columns. Default: 1.");
+		columnsOption.setRequired(false);
+		columnsOption.setType(Integer.class);
+		options.addOption(columnsOption);
+		
+		Option variantsOption = new Option("variants", true,
+				"If set, export each of the given variants, given as STRATEGY:COLUMNS, to its own subdirectory of the output " +
+						"directory, instead of -strategy and -columns.");
+		variantsOption.setRequired(false);
+		variantsOption.setArgs(-2);
+		options.addOption(variantsOption);
+		
+		Option tagAllAsOption = new Option("tagAllAs", true,
+				"If set, replace the type of all named entities by the given tag.");
+		tagAllAsOption.setRequired(false);
+		options.addOption(tagAllAsOption);
+		
+		Option gzipOption = new Option("gzip", true,
+				"If set, GZIP compress the CoNLL files. " +
+						"Optionally takes the compression level from 1 (fastest) to 9 (smallest). Default: 6.");
+		gzipOption.setRequired(false);
+		gzipOption.setOptionalArg(true);
+		gzipOption.setType(Integer.class);
+		options.addOption(gzipOption);
+		
+		Option writersOption = new Option("writers", true,
+				"Number of threads writing the CoNLL files asynchronously. Default: 0, writing synchronously.");
+		writersOption.setRequired(false);
+		writersOption.setType(Integer.class);
+		options.addOption(writersOption);
+		
+		try {
+			CommandLine commandLine = new DefaultParser().parse(options, args);
+			File snapshotLocation = new File(commandLine.getOptionValue("i"));
+			int strategy = OptionValues.getInt(commandLine, "strategy", 1, 0, GenericIobEncoder.Strategy.values().length - 1);
+			int columns = OptionValues.getInt(commandLine, "columns", 1, 1, Integer.MAX_VALUE);
+			int writers = OptionValues.getInt(commandLine, "writers", 0, 0, Integer.MAX_VALUE);
+			int compressionLevel = OptionValues.getInt(commandLine, "gzip", 6, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION);
+			
+			ArrayList<Object> parameters = new ArrayList<>(Arrays.asList(
+					ConllBIO2003Writer.PARAM_TARGET_LOCATION, commandLine.getOptionValue("o"),
+					ConllBIO2003Writer.PARAM_OVERWRITE, true,
+					ConllBIO2003Writer.PARAM_STRATEGY_INDEX, strategy,
+					ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, columns,
+					ConllBIO2003Writer.PARAM_FILTER_EMPTY_SENTENCES, true,
+					ConllBIO2003Writer.PARAM_ASYNC_WRITER_THREADS, writers,
+					ConllBIO2003Writer.PARAM_COMPRESS, commandLine.hasOption("gzip"),
+					ConllBIO2003Writer.PARAM_COMPRESSION_LEVEL, compressionLevel
+			));
+			if (commandLine.hasOption("variants")) {
+				parameters.add(ConllBIO2003Writer.PARAM_OUTPUT_SPECS);
+				parameters.add(commandLine.getOptionValues("variants"));
+			}
+			if (commandLine.hasOption("tagAllAs")) {
+				parameters.add(ConllBIO2003Writer.PARAM_TAG_ALL_AS);
+				parameters.add(commandLine.getOptionValue("tagAllAs"));
+			}
+			
+			ConllBIO2003Writer writer = new ConllBIO2003Writer();
+			writer.initialize(UimaContextFactory.createUimaContext(parameters.toArray()));
+			try {
+				ArrayList<File> snapshotFiles = new ArrayList<>(FileUtils.listFiles(snapshotLocation, new String[]{EncoderSnapshot.EXTENSION.substring(1)}, true));
+				snapshotFiles.sort(null);
+				for (File snapshotFile : snapshotFiles) {
+					writer.printConllFile(EncoderSnapshot.read(snapshotFile));
+				}
+				writer.collectionProcessComplete();
+				System.out.println(String.format("Exported %d snapshots.", snapshotFiles.size()));
+			} finally {
+				writer.destroy();
+			}
+		} catch (ResourceInitializationException | AnalysisEngineProcessException | IOException e) {
+			e.printStackTrace();
+		} catch (ParseException e) {
+			if (!Arrays.asList(args).contains("-h"))
+				System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("java -cp $CLASSPATH ExportConllFromSnapshots -i $SNAPSHOT_PATH -o $CONLL_PATH [args]", options);
+		}
+	}
+}
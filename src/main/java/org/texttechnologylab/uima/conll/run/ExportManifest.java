@@ -0,0 +1,286 @@
+package org.texttechnologylab.uima.conll.run;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.resource.metadata.NameValuePair;
+import org.texttechnologylab.uima.conll.extractor.IndexedConllFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the state of an export for each XMI file, such that an incremental export only processes new and changed
+ * files and removes the output of deleted files.
+ * <p>
+ * The manifest is stored as the tab-separated file {@link #FILE_NAME} in the CoNLL output directory. Each line holds
+ * the path of an XMI file relative to the source directory, the SHA-256 hash of its content, the {@link
+ * #hashConfiguration(Set, AnalysisEngineDescription...) hash of the export configuration}, the dataset split its CoNLL
+ * file was assigned to and the path of the CoNLL file relative to the output directory, which is empty if the writer
+ * skipped the document.
+ * </p>
+ */
+public class ExportManifest {
+	
+	/**
+	 * The name of the manifest file in the CoNLL output directory.
+	 */
+	public static final String FILE_NAME = "export-manifest.tsv";
+	
+	public static final String TRAIN = "train";
+	public static final String TEST = "test";
+	
+	private static final String HEADER = "#input\tinputHash\tconfigurationHash\tsplit\toutput";
+	
+	private final File outputLocation;
+	private final TreeMap<String, Entry> entries = new TreeMap<>();
+	
+	private ExportManifest(File outputLocation) {
+		this.outputLocation = outputLocation;
+	}
+	
+	/**
+	 * Load the manifest of the given output directory.
+	 *
+	 * @param outputLocation The CoNLL output directory.
+	 * @return The manifest of the last export, which is empty if there is none.
+	 */
+	public static ExportManifest load(File outputLocation) throws IOException {
+		ExportManifest manifest = new ExportManifest(outputLocation);
+		File manifestFile = new File(outputLocation, FILE_NAME);
+		if (manifestFile.exists()) {
+			for (String line : FileUtils.readLines(manifestFile, StandardCharsets.UTF_8)) {
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("\t", -1);
+				if (fields.length != 5)
+					throw new IOException(String.format("Malformed line in the export manifest '%s': %s", manifestFile, line));
+				manifest.entries.put(fields[0], new Entry(fields[1], fields[2], fields[3], fields[4]));
+			}
+		}
+		return manifest;
+	}
+	
+	/**
+	 * Write the manifest to the output directory, replacing the previous one.
+	 */
+	public void save() throws IOException {
+		ArrayList<String> lines = new ArrayList<>(entries.size() + 1);
+		lines.add(HEADER);
+		entries.forEach((input, entry) -> lines.add(String.join("\t", input, entry.inputHash, entry.configurationHash, entry.split, entry.output)));
+		File manifestFile = new File(outputLocation, FILE_NAME);
+		File temporaryFile = new File(outputLocation, FILE_NAME + ".tmp");
+		FileUtils.writeLines(temporaryFile, StandardCharsets.UTF_8.name(), lines, "\n");
+		Files.move(temporaryFile, manifestFile);
+	}
+	
+	/**
+	 * @return The number of XMI files in the manifest.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Compare the given XMI files to the manifest.
+	 *
+	 * @param sourceLocation    The base directory of the XMI files.
+	 * @param xmiFiles          All XMI files of the current export.
+	 * @param configurationHash The hash of the current export configuration.
+	 * @return The files to process and the files deleted since the last export.
+	 */
+	public Plan plan(File sourceLocation, Collection<File> xmiFiles, String configurationHash) throws IOException {
+		ArrayList<File> changedFiles = new ArrayList<>();
+		HashMap<String, String> inputHashes = new HashMap<>();
+		TreeSet<String> deletedInputs = new TreeSet<>(entries.keySet());
+		for (File xmiFile : xmiFiles) {
+			String input = getRelativePath(sourceLocation, xmiFile);
+			String inputHash = hashFile(xmiFile);
+			deletedInputs.remove(input);
+			Entry entry = entries.get(input);
+			if (entry == null
+					|| !entry.inputHash.equals(inputHash)
+					|| !entry.configurationHash.equals(configurationHash)
+					|| !entry.output.isEmpty() && !new File(outputLocation, entry.output).exists()) {
+				changedFiles.add(xmiFile);
+				inputHashes.put(input, inputHash);
+			}
+		}
+		return new Plan(sourceLocation, changedFiles, inputHashes, deletedInputs, configurationHash);
+	}
+	
+	/**
+	 * Hash the configuration parameters of the given analysis engines, which determine the content of the output.
+	 *
+	 * @param ignoredParameters The names of parameters that do not change the output, e.g. the number of threads or
+	 *                          the output location.
+	 * @param descriptions      The analysis engines of the export pipeline, in order.
+	 * @return The SHA-256 hash of the implementation names and the remaining parameter settings.
+	 */
+	public static String hashConfiguration(Set<String> ignoredParameters, AnalysisEngineDescription... descriptions) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		for (AnalysisEngineDescription description : descriptions) {
+			hasher.putString(description.getAnnotatorImplementationName(), StandardCharsets.UTF_8).putChar('\0');
+			NameValuePair[] settings = description.getAnalysisEngineMetaData().getConfigurationParameterSettings().getParameterSettings().clone();
+			Arrays.sort(settings, Comparator.comparing(NameValuePair::getName));
+			for (NameValuePair setting : settings) {
+				if (ignoredParameters.contains(setting.getName()))
+					continue;
+				Object value = setting.getValue();
+				hasher.putString(setting.getName(), StandardCharsets.UTF_8).putChar('=')
+						.putString(value instanceof Object[] ? Arrays.toString((Object[]) value) : String.valueOf(value), StandardCharsets.UTF_8)
+						.putChar('\0');
+			}
+		}
+		return hasher.hash().toString();
+	}
+	
+	static String hashFile(File file) throws IOException {
+		return Files.asByteSource(file).hash(Hashing.sha256()).toString();
+	}
+	
+	private static String getRelativePath(File base, File file) {
+		return base.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+	}
+	
+	/**
+	 * The changes of an incremental export. The outputs of the processed files are {@link #record(File, String)
+	 * recorded} during the export and {@link #apply(Set, String) applied} to the manifest afterwards.
+	 */
+	public final class Plan {
+		
+		private final File sourceLocation;
+		private final ImmutableList<File> changedFiles;
+		private final Map<String, String> inputHashes;
+		private final ImmutableSet<String> deletedInputs;
+		private final String configurationHash;
+		private final ConcurrentHashMap<String, String> outputs = new ConcurrentHashMap<>();
+		
+		private Plan(File sourceLocation, List<File> changedFiles, Map<String, String> inputHashes, Set<String> deletedInputs, String configurationHash) {
+			this.sourceLocation = sourceLocation;
+			this.changedFiles = ImmutableList.copyOf(changedFiles);
+			this.inputHashes = inputHashes;
+			this.deletedInputs = ImmutableSet.copyOf(deletedInputs);
+			this.configurationHash = configurationHash;
+		}
+		
+		/**
+		 * @return The new and changed XMI files, and those whose output is missing.
+		 */
+		public ImmutableList<File> getChangedFiles() {
+			return changedFiles;
+		}
+		
+		/**
+		 * @return The paths of the XMI files in the manifest which no longer exist, relative to the source directory.
+		 */
+		public ImmutableSet<String> getDeletedInputs() {
+			return deletedInputs;
+		}
+		
+		/**
+		 * Delete the outputs and sentence indices of the changed and deleted XMI files from the last export, such that
+		 * no stale output remains if a changed document is skipped by the writer.
+		 *
+		 * @return The number of deleted outputs.
+		 */
+		public int deleteStaleOutputs() throws IOException {
+			int deleted = 0;
+			for (String input : getStaleInputs()) {
+				Entry entry = entries.get(input);
+				if (entry == null || entry.output.isEmpty())
+					continue;
+				File output = new File(outputLocation, entry.output);
+				if (output.delete())
+					deleted++;
+				else if (output.exists())
+					throw new IOException(String.format("Could not delete '%s'.", output));
+				FileUtils.deleteQuietly(new File(output.getPath() + IndexedConllFile.INDEX_EXTENSION));
+			}
+			return deleted;
+		}
+		
+		/**
+		 * Record the output the export is expected to write for the given XMI file. Called by the worker threads.
+		 *
+		 * @param xmiFile The processed XMI file.
+		 * @param output  The path of its CoNLL file relative to the output directory.
+		 */
+		public void record(File xmiFile, String output) {
+			outputs.put(getRelativePath(sourceLocation, xmiFile), output);
+		}
+		
+		/**
+		 * Update the manifest with the recorded outputs once the export has finished and remove the deleted XMI
+		 * files. Outputs which have not been written, as the writer skipped their document, are recorded as empty.
+		 *
+		 * @param testIds   The ids of the documents in the test split, i.e. the names of their CoNLL files without the
+		 *                  extension.
+		 * @param extension The extension of the CoNLL files.
+		 * @return The splits whose documents were added, changed or removed, i.e. which have to be re-assembled.
+		 */
+		public Set<String> apply(Set<String> testIds, String extension) {
+			TreeSet<String> affectedSplits = new TreeSet<>();
+			for (String input : getStaleInputs()) {
+				Entry entry = entries.remove(input);
+				if (entry != null && !entry.output.isEmpty())
+					affectedSplits.add(entry.split);
+			}
+			for (Map.Entry<String, String> processed : outputs.entrySet()) {
+				String output = new File(outputLocation, processed.getValue()).exists() ? processed.getValue() : "";
+				entries.put(processed.getKey(), new Entry(inputHashes.get(processed.getKey()), configurationHash, "", output));
+			}
+			for (Map.Entry<String, Entry> input : entries.entrySet()) {
+				Entry entry = input.getValue();
+				if (entry.output.isEmpty())
+					continue;
+				String id = StringUtils.removeEnd(new File(entry.output).getName(), extension);
+				String split = testIds.contains(id) ? TEST : TRAIN;
+				if (!split.equals(entry.split)) {
+					if (!entry.split.isEmpty())
+						affectedSplits.add(entry.split);
+					affectedSplits.add(split);
+					input.setValue(new Entry(entry.inputHash, entry.configurationHash, split, entry.output));
+				}
+			}
+			return affectedSplits;
+		}
+		
+		private Set<String> getStaleInputs() {
+			TreeSet<String> staleInputs = new TreeSet<>(inputHashes.keySet());
+			staleInputs.addAll(deletedInputs);
+			return staleInputs;
+		}
+	}
+	
+	private static final class Entry {
+		final String inputHash;
+		final String configurationHash;
+		final String split;
+		final String output;
+		
+		Entry(String inputHash, String configurationHash, String split, String output) {
+			this.inputHash = inputHash;
+			this.configurationHash = configurationHash;
+			this.split = split;
+			this.output = output;
+		}
+	}
+}
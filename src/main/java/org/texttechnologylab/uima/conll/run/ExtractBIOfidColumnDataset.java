@@ -1,13 +1,15 @@
 package org.texttechnologylab.uima.conll.run;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.cli.*;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.UIMAException;
-import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ResourceCreationSpecifierFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.dkpro.core.io.xmi.XmiReader;
 import org.texttechnologylab.agreement.engine.TTLabUnitizingIAACollectionProcessingEngine;
@@ -15,21 +17,16 @@ import org.texttechnologylab.annotation.AbstractNamedEntity;
 import org.texttechnologylab.annotation.NamedEntity;
 import org.texttechnologylab.utilities.uima.reader.TextAnnotatorRepositoryCollectionReader;
 import org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer;
+import org.texttechnologylab.uima.conll.extractor.OutputSpec;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Objects;
-import java.util.function.Function;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 import static org.texttechnologylab.agreement.engine.AbstractIAAEngine.*;
 
@@ -37,6 +34,19 @@ import static org.texttechnologylab.agreement.engine.AbstractIAAEngine.*;
  * Created on 12.12.19.
  */
 public class ExtractBIOfidColumnDataset {
+	
+	/**
+	 * The writer parameters which do not change the content of the CoNLL files and are thus ignored when comparing
+	 * the configuration of an incremental export to the last one.
+	 */
+	private static final ImmutableSet<String> OUTPUT_INDEPENDENT_PARAMETERS = ImmutableSet.of(
+			ConllBIO2003Writer.PARAM_TARGET_LOCATION,
+			ConllBIO2003Writer.PARAM_ASYNC_WRITER_THREADS,
+			ConllBIO2003Writer.PARAM_ASYNC_QUEUE_CAPACITY,
+			ConllBIO2003Writer.PARAM_DATASET_LOCATION,
+			ConllBIO2003Writer.PARAM_DATASET_TEST_IDS
+	);
+	
 	public static void main(String[] args) {
 		Options options = new Options();
 		options.addOption("h", "Print this message.");
@@ -54,7 +64,7 @@ public class ExtractBIOfidColumnDataset {
 		options.addOption(fetchFromTaOption);
 		
 		Option conllTargetLocationOption = new Option("o", "out", true,
-				"CoNLL file output directory. Required.");
+				"CoNLL file output directory, which receives one CoNLL file per document unless -directDataset is set. Required.");
 		conllTargetLocationOption.setRequired(true);
 		options.addOption(conllTargetLocationOption);
 		
@@ -84,6 +94,60 @@ public class ExtractBIOfidColumnDataset {
 		datasetOption.setArgs(-2);
 		options.addOption(datasetOption);
 		
+		Option directDatasetOption = new Option("directDataset", false,
+				"If set together with -dataset, write the dataset directly instead of one CoNLL file per document, " +
+						"which are otherwise written to the output directory and concatenated into the dataset afterwards. " +
+						"Not supported together with -incremental.");
+		directDatasetOption.setRequired(false);
+		options.addOption(directDatasetOption);
+		
+		Option gzipOption = new Option("gzip", true,
+				"If set, GZIP compress the CoNLL files and the dataset. " +
+						"Optionally takes the compression level from 1 (fastest) to 9 (smallest). Default: 6.");
+		gzipOption.setRequired(false);
+		gzipOption.setOptionalArg(true);
+		gzipOption.setType(Integer.class);
+		options.addOption(gzipOption);
+		
+		Option threadsOption = new Option("threads", true,
+				"Number of worker threads to process the XMIs with. " +
+						"Not supported when fetching from the TextAnnotator. Default: 1.");
+		threadsOption.setRequired(false);
+		threadsOption.setType(Integer.class);
+		options.addOption(threadsOption);
+		
+		Option writersOption = new Option("writers", true,
+				"Number of threads writing the CoNLL files asynchronously, decoupled from the encoding. " +
+						"Default: 0, writing synchronously.");
+		writersOption.setRequired(false);
+		writersOption.setType(Integer.class);
+		options.addOption(writersOption);
+		
+		Option variantsOption = new Option("variants", true,
+				"If set, export each of the given variants in a single pass, each to its own subdirectory of the output " +
+						"and dataset directory, e.g. TopDown-2. Each variant is given as STRATEGY:COLUMNS, " +
+						"where the strategy is TopFirstBottomUp, TopDown, BottomUp or MaxCoverage, or its index. " +
+						"Not supported with -incremental. Default: TopDown:1 to the output directory itself.");
+		variantsOption.setRequired(false);
+		variantsOption.setArgs(-2);
+		options.addOption(variantsOption);
+		
+		Option snapshotsOption = new Option("snapshots", true,
+				"If set, store an encoder snapshot of each exported document in the given directory, " +
+						"from which the CoNLL files can be exported again with another strategy or number of columns " +
+						"by ExportConllFromSnapshots.");
+		snapshotsOption.setRequired(false);
+		options.addOption(snapshotsOption);
+		
+		Option incrementalOption = new Option("incremental", false,
+				"If set, only export the XMI files which are new or have changed since the last export to the output directory, " +
+						"or all of them if the export configuration has changed, and remove the CoNLL files of deleted XMI files. " +
+						"The state of the last export is kept in the file " + ExportManifest.FILE_NAME + " in the output directory. " +
+						"With -dataset, only the splits with changed documents are re-assembled. " +
+						"Not supported when fetching from the TextAnnotator.");
+		incrementalOption.setRequired(false);
+		options.addOption(incrementalOption);
+		
 		try {
 			DefaultParser defaultParser = new DefaultParser();
 			CommandLine commandLine = defaultParser.parse(options, args);
@@ -93,8 +157,43 @@ public class ExtractBIOfidColumnDataset {
 			String[] annotatorWhitelist = commandLine.getOptionValues("a");
 			Boolean whitelist = !commandLine.hasOption("blacklist");
 			float minIaaScore = Float.parseFloat(commandLine.getOptionValue("iaa", "-1.0"));
+			int threads = OptionValues.getInt(commandLine, "threads", 1, 1, Integer.MAX_VALUE);
+			int writers = OptionValues.getInt(commandLine, "writers", 0, 0, Integer.MAX_VALUE);
+			boolean compress = commandLine.hasOption("gzip");
+			int compressionLevel = OptionValues.getInt(commandLine, "gzip", 6, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION);
 			
-			CollectionReader reader;
+			String datasetDir = null;
+			HashSet<String> testIdSet = new HashSet<>();
+			if (commandLine.hasOption("dataset")) {
+				String[] datasetValues = commandLine.getOptionValues("dataset");
+				datasetDir = Paths.get(datasetValues[0]).toString();
+				testIdSet = Arrays.stream(datasetValues).skip(1)
+						.map(s -> StringUtils.substringBeforeLast(s, "."))
+						.collect(Collectors.toCollection(HashSet::new));
+			}
+			String[] variants = commandLine.hasOption("variants") ? commandLine.getOptionValues("variants") : new String[0];
+			ImmutableList<String> variantDirectories = ImmutableList.of("");
+			if (variants.length > 0) {
+				variantDirectories = Arrays.stream(variants).map(OutputSpec::parse).map(OutputSpec::getName).distinct()
+						.collect(ImmutableList.toImmutableList());
+			}
+			boolean incremental = commandLine.hasOption("incremental");
+			if (incremental && commandLine.hasOption("ta")) {
+				System.err.println("Incremental exports are not supported when fetching from the TextAnnotator, exporting all files.");
+				incremental = false;
+			}
+			if (incremental && variants.length > 0) {
+				System.err.println("Incremental exports are not supported with multiple variants, exporting all files.");
+				incremental = false;
+			}
+			boolean writeDatasetDirectly = datasetDir != null && commandLine.hasOption("directDataset");
+			if (writeDatasetDirectly && incremental) {
+				System.err.println("Incremental exports are not supported when writing the dataset directly, writing one file per document.");
+				writeDatasetDirectly = false;
+			}
+			String extension = compress ? ".conll" + ConllBIO2003Writer.GZIP_EXTENSION : ".conll";
+			
+			CollectionReader reader = null;
 			if (commandLine.hasOption("ta")) {
 				String[] taArguments = commandLine.getOptionValues("ta");
 				if (taArguments.length != 2) {
@@ -109,7 +208,11 @@ public class ExtractBIOfidColumnDataset {
 //						TextAnnotatorRepositoryCollectionReader.PARAM_DOCUMENTS_REPOSITORY, "19147",
 //						TextAnnotatorRepositoryCollectionReader.PARAM_SESSION_ID, "3B1A1380E80D4F8C2682246EB9F7B0C7"
 				);
-			} else {
+				if (threads > 1) {
+					System.err.println("Fetching from the TextAnnotator is not supported with multiple threads, using a single thread.");
+					threads = 1;
+				}
+			} else if (threads <= 1 && !incremental) {
 				reader = CollectionReaderFactory.createReader(XmiReader.class,
 						XmiReader.PARAM_PATTERNS, "[+]**.xmi",
 						XmiReader.PARAM_SOURCE_LOCATION, sourceLocation,
@@ -117,7 +220,7 @@ public class ExtractBIOfidColumnDataset {
 				);
 			}
 			
-			final AnalysisEngine conllEngine = AnalysisEngineFactory.createEngine(
+			final AnalysisEngineDescription conllEngine = AnalysisEngineFactory.createEngineDescription(
 					ConllBIO2003Writer.class,
 					ConllBIO2003Writer.PARAM_TARGET_LOCATION, conllTargetLocation,
 					ConllBIO2003Writer.PARAM_OVERWRITE, true,
@@ -128,10 +231,27 @@ public class ExtractBIOfidColumnDataset {
 					ConllBIO2003Writer.PARAM_ANNOTATOR_RELATION, whitelist,
 					ConllBIO2003Writer.PARAM_MIN_VIEWS, 1,
 					ConllBIO2003Writer.PARAM_FILTER_BY_AGREEMENT, minIaaScore,
-					ConllBIO2003Writer.PARAM_FILTER_EMPTY_SENTENCES, true);
+					ConllBIO2003Writer.PARAM_FILTER_EMPTY_SENTENCES, true,
+					ConllBIO2003Writer.PARAM_ASYNC_WRITER_THREADS, writers,
+					ConllBIO2003Writer.PARAM_COMPRESS, compress,
+					ConllBIO2003Writer.PARAM_COMPRESSION_LEVEL, compressionLevel);
+			if (variants.length > 0) {
+				ResourceCreationSpecifierFactory.setConfigurationParameters(conllEngine,
+						ConllBIO2003Writer.PARAM_OUTPUT_SPECS, variants);
+			}
+			if (commandLine.hasOption("snapshots")) {
+				ResourceCreationSpecifierFactory.setConfigurationParameters(conllEngine,
+						ConllBIO2003Writer.PARAM_SNAPSHOT_TARGET_LOCATION, commandLine.getOptionValue("snapshots"));
+			}
+			if (writeDatasetDirectly) {
+				ResourceCreationSpecifierFactory.setConfigurationParameters(conllEngine,
+						ConllBIO2003Writer.PARAM_DATASET_LOCATION, datasetDir,
+						ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIdSet.toArray(new String[0]));
+			}
 			
+			final AnalysisEngineDescription[] engines;
 			if (minIaaScore > 0.0) {
-				final AnalysisEngine agreementEngine = AnalysisEngineFactory.createEngine(TTLabUnitizingIAACollectionProcessingEngine.class,
+				final AnalysisEngineDescription agreementEngine = AnalysisEngineFactory.createEngineDescription(TTLabUnitizingIAACollectionProcessingEngine.class,
 						PARAM_ANNOTATOR_LIST, annotatorWhitelist,
 						PARAM_ANNOTATOR_RELATION, whitelist,
 						PARAM_MULTI_CAS_HANDLING, SEPARATE,
@@ -141,47 +261,56 @@ public class ExtractBIOfidColumnDataset {
 						PARAM_ANNOTATE_DOCUMENT, true,
 						PARAM_ANNOTATION_CLASSES, new String[]{NamedEntity.class.getName(), AbstractNamedEntity.class.getName()}
 				);
-				
-				SimplePipeline.runPipeline(reader, agreementEngine, conllEngine);
+				engines = new AnalysisEngineDescription[]{agreementEngine, conllEngine};
 			} else {
-				SimplePipeline.runPipeline(reader, conllEngine);
+				engines = new AnalysisEngineDescription[]{conllEngine};
 			}
 			
-			if (commandLine.hasOption("dataset")) {
-				String[] datasetValues = commandLine.getOptionValues("dataset");
-				String datasetDir = Paths.get(datasetValues[0]).toString();
-				
-				HashSet<String> testIdSet = Arrays.stream(datasetValues).skip(1)
-						.map(s -> StringUtils.substringBeforeLast(s, "."))
-						.collect(Collectors.toCollection(HashSet::new));
-				
-				HashMap<String, File> idFileMap = Arrays.stream(Objects.requireNonNull(Paths.get(conllTargetLocation).toFile().listFiles()))
-						.filter(File::isFile)
-						.filter(f -> StringUtils.endsWith(f.getName(), ".conll"))
-						.collect(Collectors.toMap(
-								k -> StringUtils.substringBeforeLast(k.getName(), "."),
-								Function.identity(),
-								(u, v) -> u, HashMap::new)
-						);
-				
-				// Concatenate and print test files
-				Path testPath = Paths.get(datasetDir, "test.conll");
-				try (PrintWriter pw = new PrintWriter(Files.newOutputStream(testPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))) {
-					for (String id : testIdSet) {
-						pw.write(FileUtils.readFileToString(idFileMap.get(id), StandardCharsets.UTF_8));
-					}
+			ExportManifest manifest = null;
+			Set<String> affectedSplits = ImmutableSet.of(ExportManifest.TRAIN, ExportManifest.TEST);
+			if (incremental) {
+				File sourceDirectory = new File(sourceLocation);
+				manifest = ExportManifest.load(new File(conllTargetLocation));
+				ExportManifest.Plan plan = manifest.plan(sourceDirectory, ParallelXmiPipeline.listXmiFiles(sourceDirectory, true),
+						ExportManifest.hashConfiguration(OUTPUT_INDEPENDENT_PARAMETERS, engines));
+				System.out.println(String.format("Exporting %d new or changed files, removing %d deleted files.",
+						plan.getChangedFiles().size(), plan.getDeletedInputs().size()));
+				plan.deleteStaleOutputs();
+				if (!plan.getChangedFiles().isEmpty()) {
+					ParallelXmiPipeline pipeline = new ParallelXmiPipeline(threads, engines);
+					pipeline.setDocumentListener((file, jCas) -> plan.record(file, ConllBIO2003Writer.getFileName(jCas) + extension));
+					pipeline.run(sourceDirectory, plan.getChangedFiles());
 				}
-				System.out.println(String.format("Concatenated %d test files.", testIdSet.size()));
-				
-				// Concatenate and print training files
-				Path trainPath = Paths.get(datasetDir, "train.conll");
-				try (PrintWriter pw = new PrintWriter(Files.newOutputStream(trainPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))) {
-					idFileMap.keySet().removeAll(testIdSet);
-					for (File file : idFileMap.values()) {
-						pw.write(FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+				affectedSplits = plan.apply(testIdSet, extension);
+			} else if (threads > 1) {
+				File sourceDirectory = new File(sourceLocation);
+				new ParallelXmiPipeline(threads, engines).run(sourceDirectory, ParallelXmiPipeline.listXmiFiles(sourceDirectory, true));
+			} else {
+				SimplePipeline.runPipeline(reader, engines);
+			}
+			
+			if (datasetDir != null && !writeDatasetDirectly) {
+				for (String variantDirectory : variantDirectories) {
+					File variantDatasetDir = new File(datasetDir, variantDirectory);
+					boolean writeTrain = affectedSplits.contains(ExportManifest.TRAIN) || !new File(variantDatasetDir, ExportManifest.TRAIN + extension).exists();
+					boolean writeTest = affectedSplits.contains(ExportManifest.TEST) || !new File(variantDatasetDir, ExportManifest.TEST + extension).exists();
+					if (writeTrain || writeTest) {
+						DatasetAssembler.Result dataset = new DatasetAssembler(new File(conllTargetLocation, variantDirectory), extension)
+								.assemble(variantDatasetDir, testIdSet, writeTrain, writeTest);
+						if (!dataset.missingTestIds.isEmpty()) {
+							System.err.println(String.format("Found no CoNLL files for the test ids %s.", dataset.missingTestIds));
+						}
+						if (writeTest)
+							System.out.println(String.format("Concatenated %d test files.", dataset.testDocuments));
+						if (writeTrain)
+							System.out.println(String.format("Concatenated %d training files.", dataset.trainDocuments));
+					} else {
+						System.out.println("The dataset is up to date.");
 					}
 				}
-				System.out.println(String.format("Concatenated %d training files.", idFileMap.size()));
+			}
+			if (manifest != null) {
+				manifest.save();
 			}
 		} catch (UIMAException e) {
 			e.printStackTrace();
@@ -204,6 +333,10 @@ public class ExtractBIOfidColumnDataset {
 				"Example arguments:"
 		);
 		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -dataset $DATASET_PATH 3720448");
+		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -dataset $DATASET_PATH 3720448 -threads 32 -directDataset");
+		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -threads 32");
+		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -threads 32 -variants TopDown:1 BottomUp:2 MaxCoverage:3");
+		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -dataset $DATASET_PATH 3720448 -threads 32 -incremental");
 		System.out.println("\t-i $XMI_PATH -o $CONLL_PATH -ids 305236 305235 -iaa 0.6 -dataset $DATASET_PATH 3720448 -ta 19147 $SESSION_ID"
 		);
 	}
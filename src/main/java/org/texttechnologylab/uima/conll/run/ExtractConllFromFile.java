@@ -1,5 +1,6 @@
 package org.texttechnologylab.uima.conll.run;
 
+import org.apache.commons.cli.*;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReader;
@@ -10,6 +11,8 @@ import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.dkpro.core.io.xmi.XmiReader;
 import org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer;
 
+import java.io.File;
+
 import static org.dkpro.core.io.xmi.XmiReader.*;
 import static org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer.*;
 
@@ -18,7 +21,16 @@ import static org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer.*;
  */
 public class ExtractConllFromFile {
 	public static void main(String[] args) {
+		Options options = new Options();
+		Option threadsOption = new Option("threads", true, "Number of worker threads to process the XMIs with. Default: 1.");
+		threadsOption.setRequired(false);
+		threadsOption.setType(Integer.class);
+		options.addOption(threadsOption);
+		
 		try {
+			CommandLine commandLine = new DefaultParser().parse(options, args);
+			int threads = OptionValues.getInt(commandLine, "threads", 1, 1, Integer.MAX_VALUE);
+			
 			final AnalysisEngineDescription conllEngineDescription = AnalysisEngineFactory.createEngineDescription(
 					ConllBIO2003Writer.class,
 					PARAM_TARGET_LOCATION, "/home/stud_homes/s3676959/Documents/BioFID/textimager-uima/textimager-uima-biofid-ocr-parser/src/test/out/TAF/conll",
@@ -33,22 +45,31 @@ public class ExtractConllFromFile {
 			);
 			
 			try {
-				CollectionReader collection = CollectionReaderFactory.createReader(
-						XmiReader.class,
-						PARAM_SOURCE_LOCATION, "/home/stud_homes/s3676959/Documents/BioFID/textimager-uima/textimager-uima-biofid-ocr-parser/src/test/out/TAF/xmi/",
-						PARAM_PATTERNS, "*.xmi",
-						PARAM_LENIENT, true
-				);
-				
-				AggregateBuilder ab = new AggregateBuilder();
-				ab.add(conllEngineDescription);
-				SimplePipeline.runPipeline(collection, ab.createAggregate());
+				String sourceLocation = "/home/stud_homes/s3676959/Documents/BioFID/textimager-uima/textimager-uima-biofid-ocr-parser/src/test/out/TAF/xmi/";
+				if (threads > 1) {
+					File sourceDirectory = new File(sourceLocation);
+					new ParallelXmiPipeline(threads, conllEngineDescription).run(sourceDirectory, ParallelXmiPipeline.listXmiFiles(sourceDirectory, false));
+				} else {
+					CollectionReader collection = CollectionReaderFactory.createReader(
+							XmiReader.class,
+							PARAM_SOURCE_LOCATION, sourceLocation,
+							PARAM_PATTERNS, "*.xmi",
+							PARAM_LENIENT, true
+					);
+					
+					AggregateBuilder ab = new AggregateBuilder();
+					ab.add(conllEngineDescription);
+					SimplePipeline.runPipeline(collection, ab.createAggregate());
+				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
 			System.out.println("\nDone");
 		} catch (UIMAException e) {
 			e.printStackTrace();
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("java -cp $CLASSPATH ExtractConllFromFile [args]", options);
 		}
 	}
 }
@@ -0,0 +1,44 @@
+package org.texttechnologylab.uima.conll.run;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Parses the values of the numeric command line options, such that invalid input is reported as a {@link
+ * ParseException} together with the help of the runner instead of an uncaught {@link NumberFormatException}.
+ */
+final class OptionValues {
+	
+	private OptionValues() {
+	}
+	
+	/**
+	 * @param commandLine  The parsed command line.
+	 * @param option       The name of the option, without the leading dash.
+	 * @param defaultValue The value if the option is not set or, if its argument is optional, set without a value.
+	 * @param min          The smallest valid value.
+	 * @param max          The largest valid value.
+	 * @return The value of the given option.
+	 * @throws ParseException If the value is not an integer between the given bounds.
+	 */
+	static int getInt(CommandLine commandLine, String option, int defaultValue, int min, int max) throws ParseException {
+		String value = commandLine.getOptionValue(option);
+		if (value == null)
+			return defaultValue;
+		int parsed;
+		try {
+			parsed = Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new ParseException(String.format("Invalid value '%s' for -%s, expected %s.", value, option, describe(min, max)));
+		}
+		if (parsed < min || parsed > max)
+			throw new ParseException(String.format("Invalid value %d for -%s, expected %s.", parsed, option, describe(min, max)));
+		return parsed;
+	}
+	
+	private static String describe(int min, int max) {
+		if (max == Integer.MAX_VALUE)
+			return String.format("an integer of at least %d", min);
+		return String.format("an integer from %d to %d", min, max);
+	}
+}
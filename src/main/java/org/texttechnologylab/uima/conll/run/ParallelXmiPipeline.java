@@ -0,0 +1,224 @@
+package org.texttechnologylab.uima.conll.run;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a pipeline of analysis engines over a collection of XMI files on a pool of worker threads.
+ * <p>
+ * The calling thread reads the raw XMI files into a bounded queue, such that at most {@code 2 * threads} documents
+ * are held in memory. Each worker owns one instance of the pipeline and a single CAS, which it reuses for every
+ * document it takes from the queue: the CAS is reset, the XMI is deserialized into it and the pipeline processes it.
+ * Documents without {@link DocumentMetaData} receive the same meta data as by the {@link
+ * org.dkpro.core.io.xmi.XmiReader XmiReader}, so the output of writers equals the output of a sequential run, as long
+ * as no two documents are written to the same file.
+ * </p><p>
+ * If a worker fails, no further documents are read, all workers are stopped and the failure is rethrown by {@link
+ * #run(File, Collection)}.
+ * </p>
+ */
+public class ParallelXmiPipeline {
+	
+	private static final Logger logger = Logger.getLogger(ParallelXmiPipeline.class);
+	
+	private final int threads;
+	private final AnalysisEngineDescription[] descriptions;
+	
+	/**
+	 * If true, the XMIs are deserialized leniently, ignoring unknown types.
+	 * Default: true.
+	 */
+	private boolean lenient = true;
+	
+	/**
+	 * If not null, called by the worker threads with each XMI file and its CAS after the pipeline has processed it.
+	 * Default: null.
+	 */
+	private BiConsumer<File, JCas> documentListener = null;
+	
+	/**
+	 * @param threads      The number of worker threads.
+	 * @param descriptions The analysis engines to run on each document, in this order.
+	 */
+	public ParallelXmiPipeline(int threads, AnalysisEngineDescription... descriptions) {
+		this.threads = Math.max(1, threads);
+		this.descriptions = descriptions;
+	}
+	
+	/**
+	 * @param sourceLocation The directory containing the XMI files.
+	 * @param recursive      If true, include the XMI files of all subdirectories.
+	 * @return All files with the extension ".xmi" in the given directory, sorted by their path.
+	 */
+	public static List<File> listXmiFiles(File sourceLocation, boolean recursive) {
+		ArrayList<File> files = new ArrayList<>(FileUtils.listFiles(sourceLocation, new String[]{"xmi"}, recursive));
+		files.sort(null);
+		return files;
+	}
+	
+	/**
+	 * Run the pipeline over the given XMI files.
+	 *
+	 * @param sourceLocation The base directory of the files, used for the meta data of documents without any.
+	 * @param xmiFiles       The XMI files to process.
+	 * @return The number of processed documents.
+	 */
+	public int run(File sourceLocation, Collection<File> xmiFiles) throws UIMAException, IOException {
+		ArrayList<AnalysisEngine> engines = new ArrayList<>(threads);
+		AnalysisEngineDescription aggregate = AnalysisEngineFactory.createEngineDescription(descriptions);
+		for (int i = 0; i < threads; i++) {
+			engines.add(AnalysisEngineFactory.createEngine(aggregate));
+		}
+		
+		ArrayBlockingQueue<XmiDocument> queue = new ArrayBlockingQueue<>(2 * threads);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger processed = new AtomicInteger();
+		
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		try {
+			for (AnalysisEngine engine : engines) {
+				JCas jCas = engine.newJCas();
+				workers.execute(() -> {
+					try {
+						XmiDocument document;
+						while ((document = queue.take()) != XmiDocument.END) {
+							jCas.reset();
+							XmiCasDeserializer.deserialize(new ByteArrayInputStream(document.content), jCas.getCas(), lenient);
+							if (!JCasUtil.exists(jCas, DocumentMetaData.class))
+								createDocumentMetaData(jCas, sourceLocation, document.file);
+							engine.process(jCas);
+							if (documentListener != null)
+								documentListener.accept(document.file, jCas);
+							processed.incrementAndGet();
+						}
+					} catch (InterruptedException ignored) {
+						// Stopped after a failure
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				});
+			}
+			
+			try {
+				for (File file : xmiFiles) {
+					if (!enqueue(queue, new XmiDocument(file, Files.readAllBytes(file.toPath())), failure))
+						break;
+				}
+				for (int i = 0; i < threads; i++) {
+					if (!enqueue(queue, XmiDocument.END, failure))
+						break;
+				}
+			} catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+			
+			if (failure.get() != null)
+				workers.shutdownNow();
+			workers.shutdown();
+			while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.info(String.format("Processed %d/%d documents.", processed.get(), xmiFiles.size()));
+			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		}
+		
+		for (AnalysisEngine engine : engines) {
+			if (failure.get() == null)
+				engine.collectionProcessComplete();
+			engine.destroy();
+		}
+		
+		Throwable exception = failure.get();
+		if (exception instanceof UIMAException)
+			throw (UIMAException) exception;
+		if (exception instanceof IOException)
+			throw (IOException) exception;
+		if (exception instanceof Error)
+			throw (Error) exception;
+		if (exception != null)
+			throw new AnalysisEngineProcessException(exception);
+		
+		logger.info(String.format("Processed %d documents with %d threads.", processed.get(), threads));
+		return processed.get();
+	}
+	
+	/**
+	 * Put the given document into the queue, waiting for space to become available.
+	 *
+	 * @return False, if a worker failed in the meantime.
+	 */
+	private static boolean enqueue(ArrayBlockingQueue<XmiDocument> queue, XmiDocument document, AtomicReference<Throwable> failure) throws InterruptedException {
+		while (!queue.offer(document, 100, TimeUnit.MILLISECONDS)) {
+			if (failure.get() != null)
+				return false;
+		}
+		return failure.get() == null;
+	}
+	
+	/**
+	 * Create the document meta data for the given file as by {@link org.dkpro.core.api.io.ResourceCollectionReaderBase
+	 * ResourceCollectionReaderBase#initCas}.
+	 */
+	private static void createDocumentMetaData(JCas jCas, File sourceLocation, File file) {
+		String baseUri = sourceLocation.toURI().toString();
+		DocumentMetaData documentMetaData = DocumentMetaData.create(jCas);
+		documentMetaData.setDocumentTitle(file.getName());
+		documentMetaData.setDocumentUri(file.toURI().toString());
+		documentMetaData.setDocumentId(sourceLocation.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString());
+		documentMetaData.setDocumentBaseUri(baseUri);
+		documentMetaData.setCollectionId(baseUri);
+	}
+	
+	public void setLenient(boolean lenient) {
+		this.lenient = lenient;
+	}
+	
+	/**
+	 * @param documentListener Called with each XMI file and its CAS after the pipeline has processed it. Must be
+	 *                         thread-safe, as it is called by all worker threads.
+	 */
+	public void setDocumentListener(BiConsumer<File, JCas> documentListener) {
+		this.documentListener = documentListener;
+	}
+	
+	/**
+	 * The raw content of an XMI file.
+	 */
+	private static final class XmiDocument {
+		static final XmiDocument END = new XmiDocument(null, null);
+		
+		final File file;
+		final byte[] content;
+		
+		XmiDocument(File file, byte[] content) {
+			this.file = file;
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package org.texttechnologylab.uima.conll;
+
+import com.google.common.collect.ImmutableList;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.util.CasIOUtil;
+import org.apache.uima.fit.util.CasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.DoubleArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.texttechnologylab.annotation.AbstractNamedEntity;
+import org.texttechnologylab.annotation.type.Animal_Fauna;
+import org.texttechnologylab.annotation.type.Fingerprint;
+import org.texttechnologylab.annotation.type.Other;
+import org.texttechnologylab.annotation.type.Plant_Flora;
+import org.texttechnologylab.annotation.type.Taxon;
+import org.texttechnologylab.iaa.AgreementContainer;
+import org.texttechnologylab.uima.conll.iobencoder.MergedCasPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic documents in the layout of the annotated TTLab corpora, either as JCases or as XMI files.
+ * <p>
+ * The base view holds the text with {@link Sentence Sentences}, {@link Token Tokens} and a {@link POS} and {@link
+ * Lemma} for each token. Hyphenated tokens are additionally split into two sub-tokens. The entities are annotated in
+ * separate annotator views named {@code <base>/<annotator id>}: each annotator annotates a random subset of the same
+ * entities, such that entities annotated by more than one annotator become duplicates once the views are merged. The
+ * entities are created in chains of nested entities, optionally crossing the previous chain, and are {@link
+ * Fingerprint fingerprinted} by their annotator. Optionally, an "IAA" view with an {@link AgreementContainer} holding
+ * a random agreement value for each entity type is added.
+ * </p><p>
+ * All documents are reproducible from the seed of the generator and their index.
+ * </p>
+ */
+public class SyntheticCorpusGenerator {
+	
+	public static final String ANNOTATOR_VIEW_BASE = "https://authority.example.org/user";
+	
+	private final long seed;
+	
+	/**
+	 * The number of tokens per document, not counting sub-tokens.
+	 * Default: 1000.
+	 */
+	private int tokenCount = 1000;
+	
+	/**
+	 * The number of tokens per sentence.
+	 * Default: 25.
+	 */
+	private int sentenceLength = 25;
+	
+	/**
+	 * The number of distinct entities per token.
+	 * Default: 0.1.
+	 */
+	private double entityDensity = 0.1;
+	
+	/**
+	 * The number of entities in each chain of nested entities. Each entity of a chain covers one token less on both
+	 * sides than its parent.
+	 * Default: 1.
+	 */
+	private int nestingDepth = 1;
+	
+	/**
+	 * The probability for a chain of entities to begin inside the outermost entity of the previous chain and to end
+	 * after it, ie. to cross it.
+	 * Default: 0.0.
+	 */
+	private double crossingRate = 0.0;
+	
+	/**
+	 * The probability for a token to be hyphenated and split into two sub-tokens.
+	 * Default: 0.02.
+	 */
+	private double hyphenRate = 0.02;
+	
+	/**
+	 * The number of annotator views.
+	 * Default: 1.
+	 */
+	private int viewCount = 1;
+	
+	/**
+	 * The probability for an annotator to annotate an entity, if there is more than one annotator view.
+	 * Default: 0.8.
+	 */
+	private double viewCoverage = 0.8;
+	
+	/**
+	 * The probability for an annotated entity to be fingerprinted.
+	 * Default: 1.0.
+	 */
+	private double fingerprintCoverage = 1.0;
+	
+	/**
+	 * If true, add an "IAA" view with an {@link AgreementContainer}.
+	 * Default: false.
+	 */
+	private boolean addIaaView = false;
+	
+	/**
+	 * The types of the entities, chosen uniformly at random. If a type has a "value" feature, it is set to the short
+	 * name of the type.
+	 * Default: {@link Taxon}, {@link Animal_Fauna}, {@link Plant_Flora}, {@link Other} and {@link AbstractNamedEntity}.
+	 */
+	private List<Class<? extends Annotation>> entityTypes = ImmutableList.of(
+			Taxon.class, Animal_Fauna.class, Plant_Flora.class, Other.class, AbstractNamedEntity.class
+	);
+	
+	/**
+	 * @param seed The seed, from which all documents are generated.
+	 */
+	public SyntheticCorpusGenerator(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Create the document with the given index in a new JCas.
+	 */
+	public JCas createJCas(int documentIndex) throws UIMAException {
+		JCas jCas = MergedCasPool.createMergedCas();
+		fill(jCas, documentIndex);
+		return jCas;
+	}
+	
+	/**
+	 * Write the documents with the indices {@code [0, documentCount)} as XMI files into the given directory.
+	 *
+	 * @return The written files.
+	 */
+	public List<File> writeXmi(File targetLocation, int documentCount) throws UIMAException, IOException {
+		Files.createDirectories(targetLocation.toPath());
+		ArrayList<File> files = new ArrayList<>(documentCount);
+		JCas jCas = MergedCasPool.createMergedCas();
+		for (int documentIndex = 0; documentIndex < documentCount; documentIndex++) {
+			jCas.reset();
+			fill(jCas, documentIndex);
+			File file = new File(targetLocation, getDocumentId(documentIndex) + ".xmi");
+			CasIOUtil.writeXmi(jCas, file);
+			files.add(file);
+		}
+		return files;
+	}
+	
+	public String getDocumentId(int documentIndex) {
+		return String.format("synthetic-%d-%05d", seed, documentIndex);
+	}
+	
+	/**
+	 * Fill the given, empty JCas with the document with the given index.
+	 */
+	public void fill(JCas jCas, int documentIndex) throws UIMAException {
+		Random random = new Random(seed * 31 + documentIndex);
+		
+		StringBuilder text = new StringBuilder();
+		int[] tokenBegins = new int[tokenCount];
+		int[] tokenEnds = new int[tokenCount];
+		int[] hyphens = new int[tokenCount];
+		for (int i = 0; i < tokenCount; i++) {
+			tokenBegins[i] = text.length();
+			text.append("w").append(i);
+			hyphens[i] = -1;
+			if (random.nextDouble() < hyphenRate) {
+				hyphens[i] = text.length();
+				text.append("-h").append(i);
+			}
+			tokenEnds[i] = text.length();
+			text.append(i % sentenceLength == sentenceLength - 1 ? ".\n" : " ");
+		}
+		jCas.setDocumentText(text.toString());
+		jCas.setDocumentLanguage("de");
+		
+		DocumentMetaData documentMetaData = DocumentMetaData.create(jCas);
+		documentMetaData.setDocumentId(getDocumentId(documentIndex));
+		
+		for (int i = 0; i < tokenCount; i++) {
+			int begin = tokenBegins[i];
+			int end = tokenEnds[i];
+			if (i % sentenceLength == 0) {
+				int sentenceEnd = tokenEnds[Math.min(tokenCount, i + sentenceLength) - 1];
+				new Sentence(jCas, begin, sentenceEnd).addToIndexes();
+			}
+			
+			Token token = new Token(jCas, begin, end);
+			POS pos = new POS(jCas, begin, end);
+			pos.setPosValue(random.nextBoolean() ? "NN" : "ADJA");
+			pos.addToIndexes();
+			Lemma lemma = new Lemma(jCas, begin, end);
+			lemma.setValue(text.substring(begin, end));
+			lemma.addToIndexes();
+			token.setPos(pos);
+			token.setLemma(lemma);
+			token.addToIndexes();
+			
+			if (hyphens[i] >= 0) {
+				new Token(jCas, begin, hyphens[i]).addToIndexes();
+				new Token(jCas, hyphens[i] + 1, end).addToIndexes();
+			}
+		}
+		
+		ArrayList<int[]> spans = createEntitySpans(random, tokenBegins, tokenEnds);
+		ArrayList<Class<? extends Annotation>> types = new ArrayList<>(spans.size());
+		for (int i = 0; i < spans.size(); i++) {
+			types.add(entityTypes.get(random.nextInt(entityTypes.size())));
+		}
+		
+		for (int annotator = 0; annotator < viewCount; annotator++) {
+			JCas viewCas = jCas.createView(String.format("%s/%d", ANNOTATOR_VIEW_BASE, annotator));
+			viewCas.setDocumentText(jCas.getDocumentText());
+			CAS cas = viewCas.getCas();
+			for (int i = 0; i < spans.size(); i++) {
+				if (viewCount > 1 && random.nextDouble() >= viewCoverage)
+					continue;
+				
+				int[] span = spans.get(i);
+				Type type = CasUtil.getType(cas, types.get(i));
+				Annotation namedEntity = (Annotation) cas.createAnnotation(type, span[0], span[1]);
+				Feature valueFeature = type.getFeatureByBaseName("value");
+				if (valueFeature != null)
+					namedEntity.setStringValue(valueFeature, type.getShortName());
+				namedEntity.addToIndexes();
+				
+				if (random.nextDouble() < fingerprintCoverage) {
+					Fingerprint fingerprint = new Fingerprint(viewCas);
+					fingerprint.setReference(namedEntity);
+					fingerprint.setUser(Integer.toString(annotator));
+					fingerprint.addToIndexes();
+				}
+			}
+		}
+		
+		if (addIaaView) {
+			JCas iaaView = jCas.createView("IAA");
+			iaaView.setDocumentText(jCas.getDocumentText());
+			StringArray categoryNames = new StringArray(iaaView, entityTypes.size());
+			DoubleArray categoryAgreementValues = new DoubleArray(iaaView, entityTypes.size());
+			for (int i = 0; i < entityTypes.size(); i++) {
+				categoryNames.set(i, entityTypes.get(i).getName());
+				categoryAgreementValues.set(i, random.nextDouble());
+			}
+			AgreementContainer agreementContainer = new AgreementContainer(iaaView);
+			agreementContainer.setCategoryNames(categoryNames);
+			agreementContainer.setCategoryAgreementValues(categoryAgreementValues);
+			agreementContainer.addToIndexes();
+		}
+	}
+	
+	/**
+	 * Create the character offsets of all distinct entities, in chains of nested entities with the outermost entity
+	 * first.
+	 */
+	private ArrayList<int[]> createEntitySpans(Random random, int[] tokenBegins, int[] tokenEnds) {
+		int entityCount = (int) Math.round(tokenCount * entityDensity);
+		int depth = Math.max(1, Math.min(nestingDepth, entityCount));
+		ArrayList<int[]> spans = new ArrayList<>(entityCount);
+		
+		int previousFirst = -1;
+		int previousLast = -1;
+		while (spans.size() < entityCount) {
+			int length = Math.min(tokenCount, 2 * depth - 1 + random.nextInt(4));
+			int first;
+			if (previousFirst >= 0 && previousLast - previousFirst > 0 && random.nextDouble() < crossingRate) {
+				first = Math.min(previousFirst + 1 + random.nextInt(previousLast - previousFirst), tokenCount - length);
+				length = Math.max(length, previousLast - first + 2);
+				length = Math.min(length, tokenCount - first);
+			} else {
+				first = random.nextInt(tokenCount - length + 1);
+			}
+			
+			for (int level = 0; level < depth && spans.size() < entityCount; level++) {
+				int firstCovered = Math.min(first + level, first + length - 1);
+				int lastCovered = Math.max(firstCovered, first + length - 1 - level);
+				spans.add(new int[]{tokenBegins[firstCovered], tokenEnds[lastCovered]});
+			}
+			previousFirst = first;
+			previousLast = first + length - 1;
+		}
+		return spans;
+	}
+	
+	public void setTokenCount(int tokenCount) {
+		this.tokenCount = tokenCount;
+	}
+	
+	public void setSentenceLength(int sentenceLength) {
+		this.sentenceLength = Math.max(1, sentenceLength);
+	}
+	
+	public void setEntityDensity(double entityDensity) {
+		this.entityDensity = entityDensity;
+	}
+	
+	public void setNestingDepth(int nestingDepth) {
+		this.nestingDepth = nestingDepth;
+	}
+	
+	public void setCrossingRate(double crossingRate) {
+		this.crossingRate = crossingRate;
+	}
+	
+	public void setHyphenRate(double hyphenRate) {
+		this.hyphenRate = hyphenRate;
+	}
+	
+	public void setViewCount(int viewCount) {
+		this.viewCount = viewCount;
+	}
+	
+	public void setViewCoverage(double viewCoverage) {
+		this.viewCoverage = viewCoverage;
+	}
+	
+	public void setFingerprintCoverage(double fingerprintCoverage) {
+		this.fingerprintCoverage = fingerprintCoverage;
+	}
+	
+	public void setAddIaaView(boolean addIaaView) {
+		this.addIaaView = addIaaView;
+	}
+	
+	public void setEntityTypes(List<Class<? extends Annotation>> entityTypes) {
+		this.entityTypes = entityTypes;
+	}
+}
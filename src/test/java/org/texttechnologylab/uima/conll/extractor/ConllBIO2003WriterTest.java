@@ -9,6 +9,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
@@ -18,13 +19,19 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.dkpro.core.io.xmi.XmiReader;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.texttechnologylab.agreement.engine.TTLabUnitizingIAACollectionProcessingEngine;
 import org.texttechnologylab.uima.conll.iobencoder.DKProHierarchicalIobEncoder;
 import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 import static org.texttechnologylab.agreement.engine.TTLabUnitizingIAACollectionProcessingEngine.*;
 import static org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder.Strategy.MaxCoverage;
 
@@ -55,6 +62,64 @@ public class ConllBIO2003WriterTest {
 		}
 	}
 	
+	@Test
+	public void testSweepLineRanking() {
+		try {
+			DKProHierarchicalIobEncoder sweepLineEncoder = new DKProHierarchicalIobEncoder(getjCas());
+			sweepLineEncoder.setRemoveDuplicateSameType(false);
+			sweepLineEncoder.build();
+			
+			DKProHierarchicalIobEncoder subiterationEncoder = new DKProHierarchicalIobEncoder(getjCas());
+			subiterationEncoder.setRemoveDuplicateSameType(false);
+			subiterationEncoder.setUseSweepLineRanking(false);
+			subiterationEncoder.build();
+			
+			ArrayList<Token> sweepLineTokens = Lists.newArrayList(JCasUtil.select(sweepLineEncoder.getMergedCas(), Token.class));
+			ArrayList<Token> subiterationTokens = Lists.newArrayList(JCasUtil.select(subiterationEncoder.getMergedCas(), Token.class));
+			for (int strategy = 0; strategy < 4; strategy++) {
+				for (int i = 0; i < sweepLineTokens.size(); i++) {
+					assertEquals(
+							subiterationEncoder.getFeaturesForNColumns(subiterationTokens.get(i), strategy, 4),
+							sweepLineEncoder.getFeaturesForNColumns(sweepLineTokens.get(i), strategy, 4)
+					);
+				}
+			}
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void testRequiredProjection() {
+		try {
+			DKProHierarchicalIobEncoder fullEncoder = new DKProHierarchicalIobEncoder(getjCas());
+			fullEncoder.setRemoveDuplicateSameType(false);
+			fullEncoder.build();
+			ArrayList<Token> fullTokens = Lists.newArrayList(JCasUtil.select(fullEncoder.getMergedCas(), Token.class));
+			
+			for (GenericIobEncoder.Strategy strategy : GenericIobEncoder.Strategy.values()) {
+				for (int columns = 1; columns <= 4; columns++) {
+					DKProHierarchicalIobEncoder limitedEncoder = new DKProHierarchicalIobEncoder(getjCas());
+					limitedEncoder.setRemoveDuplicateSameType(false);
+					limitedEncoder.requireProjection(strategy, columns);
+					limitedEncoder.build();
+					
+					ArrayList<Token> limitedTokens = Lists.newArrayList(JCasUtil.select(limitedEncoder.getMergedCas(), Token.class));
+					for (int i = 0; i < fullTokens.size(); i++) {
+						assertEquals(
+								fullEncoder.getFeaturesForNColumns(fullTokens.get(i), strategy, columns),
+								limitedEncoder.getFeaturesForNColumns(limitedTokens.get(i), strategy, columns)
+						);
+					}
+				}
+			}
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
 	@Test
 	public void conllWriter() {
 		try {
@@ -161,6 +226,39 @@ public class ConllBIO2003WriterTest {
 		}
 	}
 	
+	@Test
+	public void existingFileFailsProcess(@TempDir Path tempDir) {
+		try {
+			JCas jCas = getjCas();
+			
+			// Metadata
+			DocumentMetaData documentMetaData = DocumentMetaData.create(jCas);
+			documentMetaData.setDocumentId("existing");
+			documentMetaData.setDocumentUri("existingGUF");
+			
+			final AnalysisEngine conllEngine = AnalysisEngineFactory.createEngine(
+					ConllBIO2003Writer.class,
+					ConllBIO2003Writer.PARAM_TARGET_LOCATION, tempDir.toString(),
+					ConllBIO2003Writer.PARAM_OVERWRITE, false,
+					ConllBIO2003Writer.PARAM_FILTER_FINGERPRINTED, false,
+					ConllBIO2003Writer.PARAM_MIN_VIEWS, 0,
+					ConllBIO2003Writer.PARAM_USE_TTLAB_TYPESYSTEM, false,
+					ConllBIO2003Writer.PARAM_ANNOTATOR_RELATION, false
+			);
+			
+			try {
+				conllEngine.process(jCas);
+				assertTrue(tempDir.resolve("existing.conll").toFile().exists());
+				assertThrows(AnalysisEngineProcessException.class, () -> conllEngine.process(jCas));
+			} finally {
+				conllEngine.destroy();
+			}
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
 	@Test
 	public void exampleFile() {
 		try {
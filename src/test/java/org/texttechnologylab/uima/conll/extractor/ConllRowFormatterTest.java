@@ -0,0 +1,45 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConllRowFormatterTest {
+	
+	@Test
+	public void rowsEqualFormattedRows() {
+		List<String> labels = Arrays.asList("B-Taxon", "I-Location_Place", "O", "<ABSTRACT>");
+		for (String separator : new String[]{" ", "\t", "-", "_", ""}) {
+			for (String tagAllAs : new String[]{null, "", "NE"}) {
+				StringWriter expected = new StringWriter();
+				PrintWriter expectedWriter = new PrintWriter(expected);
+				String namedEntityFeatures = String.join(separator, labels);
+				if (tagAllAs != null && !tagAllAs.isEmpty())
+					namedEntityFeatures = namedEntityFeatures.replaceAll("-[\\w_]+", "-" + tagAllAs);
+				expectedWriter.printf("%s%s%s%s%s%s%s%n", "Quercus", separator, "NN", separator, "_", separator, namedEntityFeatures);
+				expectedWriter.println();
+				expectedWriter.println();
+				
+				StringWriter actual = new StringWriter();
+				ConllRowFormatter rowFormatter = new ConllRowFormatter(new PrintWriter(actual), separator, tagAllAs);
+				rowFormatter.text(" Quercus robur", 1, 8);
+				rowFormatter.column("NN");
+				rowFormatter.column("_");
+				rowFormatter.labels(labels);
+				rowFormatter.endRow();
+				assertEquals(1, rowFormatter.endSentence());
+				rowFormatter.text("dropped");
+				rowFormatter.endRow();
+				assertEquals(1, rowFormatter.discardSentence());
+				assertEquals(0, rowFormatter.endSentence());
+				
+				assertEquals(expected.toString(), actual.toString(), "separator '" + separator + "', tag " + tagAllAs);
+			}
+		}
+	}
+}
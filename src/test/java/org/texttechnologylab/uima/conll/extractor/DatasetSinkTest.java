@@ -0,0 +1,129 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class DatasetSinkTest {
+	
+	private static final int DOCUMENTS = 8;
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void datasetEqualsConcatenatedDocuments(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(5L);
+			generator.setTokenCount(300);
+			generator.setNestingDepth(2);
+			generator.setViewCount(2);
+			ImmutableSet<String> testIds = ImmutableSet.of(generator.getDocumentId(1), generator.getDocumentId(4), "missing");
+			
+			File documentLocation = tempDir.resolve("documents").toFile();
+			ConllBIO2003Writer documentWriter = writers.getWriter(documentLocation);
+			File datasetLocation = tempDir.resolve("dataset").toFile();
+			ConllBIO2003Writer datasetWriter = writers.getWriter(tempDir.resolve("unused").toFile(),
+					ConllBIO2003Writer.PARAM_DATASET_LOCATION, datasetLocation.getPath(),
+					ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIds.toArray(new String[0])
+			);
+			
+			StringBuilder expectedTrain = new StringBuilder();
+			StringBuilder expectedTest = new StringBuilder();
+			for (int i = 0; i < DOCUMENTS; i++) {
+				JCas jCas = generator.createJCas(i);
+				documentWriter.process(jCas);
+				datasetWriter.process(jCas);
+				String documentId = generator.getDocumentId(i);
+				String content = FileUtils.readFileToString(new File(documentLocation, documentId + ".conll"), StandardCharsets.UTF_8);
+				(testIds.contains(documentId) ? expectedTest : expectedTrain).append(content);
+			}
+			datasetWriter.collectionProcessComplete();
+			
+			assertFalse(new File(tempDir.toFile(), "unused").exists());
+			assertTrue(expectedTest.length() > 0);
+			assertEquals(expectedTest.toString(), FileUtils.readFileToString(new File(datasetLocation, "test.conll"), StandardCharsets.UTF_8));
+			assertEquals(expectedTrain.toString(), FileUtils.readFileToString(new File(datasetLocation, "train.conll"), StandardCharsets.UTF_8));
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void compressedOutputEqualsUncompressedOutput(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(6L);
+			generator.setTokenCount(300);
+			generator.setViewCount(2);
+			ImmutableSet<String> testIds = ImmutableSet.of(generator.getDocumentId(2));
+			
+			File plainLocation = tempDir.resolve("plain").toFile();
+			File compressedLocation = tempDir.resolve("compressed").toFile();
+			ConllBIO2003Writer plainWriter = writers.getWriter(tempDir.resolve("unused-plain").toFile(),
+					ConllBIO2003Writer.PARAM_DATASET_LOCATION, plainLocation.getPath(),
+					ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIds.toArray(new String[0])
+			);
+			ConllBIO2003Writer compressedWriter = writers.getWriter(tempDir.resolve("unused-compressed").toFile(),
+					ConllBIO2003Writer.PARAM_DATASET_LOCATION, compressedLocation.getPath(),
+					ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIds.toArray(new String[0]),
+					ConllBIO2003Writer.PARAM_COMPRESS, true,
+					ConllBIO2003Writer.PARAM_COMPRESSION_LEVEL, 9,
+					ConllBIO2003Writer.PARAM_COMPRESSION_BUFFER_SIZE, 1024
+			);
+			for (int i = 0; i < DOCUMENTS; i++) {
+				JCas jCas = generator.createJCas(i);
+				plainWriter.process(jCas);
+				compressedWriter.process(jCas);
+			}
+			plainWriter.collectionProcessComplete();
+			compressedWriter.collectionProcessComplete();
+			
+			for (String split : new String[]{"train.conll", "test.conll"}) {
+				File compressedFile = new File(compressedLocation, split + ConllBIO2003Writer.GZIP_EXTENSION);
+				File plainFile = new File(plainLocation, split);
+				assertTrue(compressedFile.length() < plainFile.length());
+				try (GZIPInputStream inputStream = new GZIPInputStream(new FileInputStream(compressedFile))) {
+					assertEquals(FileUtils.readFileToString(plainFile, StandardCharsets.UTF_8), IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+				}
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void invalidCompressionLevelIsRejected(@TempDir Path tempDir) {
+		for (int level : new int[]{-1, 0, 10}) {
+			assertThrows(ResourceInitializationException.class, () -> writers.getWriter(tempDir.toFile(),
+					ConllBIO2003Writer.PARAM_COMPRESS, true,
+					ConllBIO2003Writer.PARAM_COMPRESSION_LEVEL, level
+			), Integer.toString(level));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+import org.texttechnologylab.uima.conll.iobencoder.EncoderSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class EncoderSnapshotTest {
+	
+	private static final int DOCUMENTS = 4;
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void snapshotsEqualDirectExport(@TempDir Path tempDir) {
+		try {
+			File snapshotLocation = tempDir.resolve("snapshots").toFile();
+			ConllBIO2003Writer snapshotWriter = getWriter(tempDir.resolve("initial").toFile(), 3, 2, "",
+					ConllBIO2003Writer.PARAM_SNAPSHOT_TARGET_LOCATION, snapshotLocation.getPath());
+			process(snapshotWriter);
+			
+			Object[][] configurations = {{0, 2, ""}, {1, 3, ""}, {2, 1, ""}, {3, 3, "NE"}};
+			for (int i = 0; i < configurations.length; i++) {
+				int strategy = (int) configurations[i][0];
+				int columns = (int) configurations[i][1];
+				String tagAllAs = (String) configurations[i][2];
+				File directLocation = tempDir.resolve("direct-" + i).toFile();
+				process(getWriter(directLocation, strategy, columns, tagAllAs));
+				
+				File projectedLocation = tempDir.resolve("projected-" + i).toFile();
+				ConllBIO2003Writer projectingWriter = getWriter(projectedLocation, strategy, columns, tagAllAs);
+				SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(23L);
+				for (int document = 0; document < DOCUMENTS; document++) {
+					String documentId = generator.getDocumentId(document);
+					EncoderSnapshot snapshot = EncoderSnapshot.read(new File(snapshotLocation, documentId + EncoderSnapshot.EXTENSION));
+					assertEquals(documentId, snapshot.getName());
+					projectingWriter.printConllFile(snapshot);
+				}
+				projectingWriter.collectionProcessComplete();
+				
+				for (int document = 0; document < DOCUMENTS; document++) {
+					String fileName = generator.getDocumentId(document) + ".conll";
+					String expected = FileUtils.readFileToString(new File(directLocation, fileName), StandardCharsets.UTF_8);
+					assertTrue(expected.length() > 0);
+					assertEquals(expected, FileUtils.readFileToString(new File(projectedLocation, fileName), StandardCharsets.UTF_8), fileName);
+				}
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void oneClassPerColumnWriterRejectsSnapshots(@TempDir Path tempDir) {
+		OneClassPerColumnWriter writer = new OneClassPerColumnWriter();
+		try {
+			assertThrows(ResourceInitializationException.class, () -> writer.initialize(UimaContextFactory.createUimaContext(
+					ConllBIO2003Writer.PARAM_TARGET_LOCATION, tempDir.resolve("columns").toString(),
+					ConllBIO2003Writer.PARAM_SNAPSHOT_TARGET_LOCATION, tempDir.resolve("snapshots").toString()
+			)));
+		} finally {
+			writer.destroy();
+		}
+	}
+	
+	private static void process(ConllBIO2003Writer writer) throws UIMAException {
+		SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(23L);
+		generator.setTokenCount(400);
+		generator.setNestingDepth(3);
+		generator.setViewCount(2);
+		for (int document = 0; document < DOCUMENTS; document++) {
+			writer.process(generator.createJCas(document));
+		}
+		writer.collectionProcessComplete();
+	}
+	
+	private ConllBIO2003Writer getWriter(File targetLocation, int strategy, int columns, String tagAllAs, Object... parameters) throws UIMAException {
+		return writers.getWriter(targetLocation, ArrayUtils.addAll(new Object[]{
+				ConllBIO2003Writer.PARAM_STRATEGY_INDEX, strategy,
+				ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, columns,
+				ConllBIO2003Writer.PARAM_TAG_ALL_AS, tagAllAs
+		}, parameters));
+	}
+}
@@ -0,0 +1,90 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.uima.UIMAException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class IndexedConllFileTest {
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void sentencesEqualConllFile(@TempDir Path tempDir) {
+		try {
+			assertSentencesEqualConllFile(new ConllBIO2003Writer(), tempDir.resolve("hierarchical").toFile());
+			assertSentencesEqualConllFile(new OneClassPerColumnWriter(), tempDir.resolve("columns").toFile());
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private void assertSentencesEqualConllFile(ConllBIO2003Writer writer, File conllLocation) throws UIMAException, IOException {
+		SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(17L);
+		generator.setTokenCount(500);
+		generator.setNestingDepth(2);
+		writers.getWriter(writer, conllLocation,
+				ConllBIO2003Writer.PARAM_WRITE_SENTENCE_INDEX, true,
+				ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 2
+		);
+		writer.process(generator.createJCas(0));
+		writer.collectionProcessComplete();
+		
+		File conllFile = new File(conllLocation, generator.getDocumentId(0) + ".conll");
+		String separator = System.lineSeparator();
+		ArrayList<String> expectedSentences = new ArrayList<>();
+		StringBuilder rows = new StringBuilder();
+		for (String line : FileUtils.readLines(conllFile, StandardCharsets.UTF_8)) {
+			if (line.startsWith("#"))
+				continue;
+			rows.append(line).append(separator);
+			if (line.isEmpty()) {
+				expectedSentences.add(rows.toString());
+				rows.setLength(0);
+			}
+		}
+		assertEquals(0, rows.length());
+		
+		try (IndexedConllFile indexedConllFile = new IndexedConllFile(conllFile, StandardCharsets.UTF_8)) {
+			assertTrue(indexedConllFile.size() > 1);
+			assertEquals(expectedSentences.size(), indexedConllFile.size());
+			for (int i = indexedConllFile.size() - 1; i >= 0; i--) {
+				assertEquals(expectedSentences.get(i), indexedConllFile.getSentence(i));
+				assertEquals(StringUtils.countMatches(expectedSentences.get(i), separator) - 1, indexedConllFile.getTokenCount(i));
+			}
+			
+			TreeMap<Integer, int[]> buckets = indexedConllFile.getLengthBuckets(10);
+			int bucketedSentences = 0;
+			for (Map.Entry<Integer, int[]> bucket : buckets.entrySet()) {
+				for (int sentence : bucket.getValue()) {
+					assertEquals((int) bucket.getKey(), indexedConllFile.getTokenCount(sentence) / 10);
+				}
+				assertArrayEquals(bucket.getValue(), indexedConllFile.getSentencesByLength(bucket.getKey() * 10, bucket.getKey() * 10 + 9));
+				bucketedSentences += bucket.getValue().length;
+			}
+			assertEquals(indexedConllFile.size(), bucketedSentences);
+		}
+	}
+}
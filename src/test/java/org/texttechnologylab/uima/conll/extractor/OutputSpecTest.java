@@ -0,0 +1,81 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+import org.texttechnologylab.uima.conll.iobencoder.GenericIobEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class OutputSpecTest {
+	
+	private static final int DOCUMENTS = 4;
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void parse() {
+		assertEquals(new OutputSpec(GenericIobEncoder.Strategy.TopDown, 2), OutputSpec.parse("TopDown:2"));
+		assertEquals(new OutputSpec(GenericIobEncoder.Strategy.MaxCoverage, 1), OutputSpec.parse("3:1"));
+		assertEquals("BottomUp-3", OutputSpec.parse("BottomUp:3").getName());
+		assertThrows(IllegalArgumentException.class, () -> OutputSpec.parse("TopDown"));
+		assertThrows(IllegalArgumentException.class, () -> OutputSpec.parse("Sideways:1"));
+		assertThrows(IllegalArgumentException.class, () -> OutputSpec.parse("4:1"));
+		assertThrows(IllegalArgumentException.class, () -> OutputSpec.parse("TopDown:0"));
+	}
+	
+	@Test
+	public void multipleSpecsEqualSeparateExports(@TempDir Path tempDir) {
+		try {
+			String[] specs = {"TopFirstBottomUp:2", "TopDown:1", "BottomUp:2", "3:3"};
+			File combinedLocation = tempDir.resolve("combined").toFile();
+			process(writers.getWriter(combinedLocation, ConllBIO2003Writer.PARAM_OUTPUT_SPECS, specs));
+			
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(29L);
+			for (String spec : specs) {
+				OutputSpec outputSpec = OutputSpec.parse(spec);
+				File separateLocation = tempDir.resolve("separate-" + outputSpec.getName()).toFile();
+				process(writers.getWriter(separateLocation,
+						ConllBIO2003Writer.PARAM_STRATEGY_INDEX, outputSpec.getStrategy().ordinal(),
+						ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, outputSpec.getColumns()));
+				for (int document = 0; document < DOCUMENTS; document++) {
+					String fileName = generator.getDocumentId(document) + ".conll";
+					String expected = FileUtils.readFileToString(new File(separateLocation, fileName), StandardCharsets.UTF_8);
+					assertTrue(expected.length() > 0);
+					File combinedFile = new File(new File(combinedLocation, outputSpec.getName()), fileName);
+					assertEquals(expected, FileUtils.readFileToString(combinedFile, StandardCharsets.UTF_8), combinedFile.getPath());
+				}
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private static void process(ConllBIO2003Writer writer) throws UIMAException {
+		SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(29L);
+		generator.setTokenCount(300);
+		generator.setNestingDepth(3);
+		generator.setViewCount(2);
+		for (int document = 0; document < DOCUMENTS; document++) {
+			writer.process(generator.createJCas(document));
+		}
+		writer.collectionProcessComplete();
+	}
+}
@@ -0,0 +1,205 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class SharedWriterTest {
+	
+	private static final int DOCUMENTS = 16;
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void sharedInstanceEqualsSequentialInstance(@TempDir Path tempDir) {
+		assertSharedEqualsSequential(tempDir);
+	}
+	
+	@Test
+	public void asynchronousOutputEqualsSynchronousOutput(@TempDir Path tempDir) {
+		assertSharedEqualsSequential(tempDir,
+				ConllBIO2003Writer.PARAM_ASYNC_WRITER_THREADS, 2,
+				ConllBIO2003Writer.PARAM_ASYNC_QUEUE_CAPACITY, 2
+		);
+	}
+	
+	@Test
+	public void instancesWithSameTargetShareStatistics(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(17L);
+			generator.setTokenCount(200);
+			generator.setViewCount(3);
+			generator.setViewCoverage(0.5);
+			
+			ConllBIO2003Writer sequentialWriter = getWriter(tempDir.resolve("sequential").toFile());
+			ConllBIO2003Writer[] workerWriters = {getWriter(tempDir.resolve("workers").toFile()), getWriter(tempDir.resolve("workers").toFile())};
+			for (int i = 0; i < DOCUMENTS; i++) {
+				sequentialWriter.process(generator.createJCas(i));
+				workerWriters[i % 2].process(generator.createJCas(i));
+			}
+			sequentialWriter.collectionProcessComplete();
+			for (ConllBIO2003Writer workerWriter : workerWriters) {
+				workerWriter.collectionProcessComplete();
+				workerWriter.destroy();
+			}
+			
+			WriterStatistics expected = sequentialWriter.getStatistics();
+			assertTrue(expected.documentsWritten.sum() > 0);
+			assertSame(workerWriters[0].getStatistics(), workerWriters[1].getStatistics());
+			assertEquals(expected.toString(), workerWriters[0].getStatistics().toString());
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void writerIsReusedForAnotherCollection(@TempDir Path tempDir) {
+		assertReusedForAnotherCollection(tempDir.toFile());
+	}
+	
+	@Test
+	public void asynchronousWriterIsReusedForAnotherCollection(@TempDir Path tempDir) {
+		assertReusedForAnotherCollection(tempDir.toFile(),
+				ConllBIO2003Writer.PARAM_ASYNC_WRITER_THREADS, 2,
+				ConllBIO2003Writer.PARAM_ASYNC_QUEUE_CAPACITY, 2
+		);
+	}
+	
+	@Test
+	public void instancesWithSameTargetRequireSameConfiguration(@TempDir Path tempDir) {
+		try {
+			ConllBIO2003Writer writer = getWriter(tempDir.toFile());
+			assertThrows(ResourceInitializationException.class, () -> getWriter(tempDir.toFile(), ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 2));
+			writer.destroy();
+			getWriter(tempDir.toFile(), ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 2);
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private void assertReusedForAnotherCollection(File targetLocation, Object... additionalParameters) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(17L);
+			generator.setTokenCount(200);
+			generator.setViewCount(3);
+			generator.setViewCoverage(0.5);
+			
+			ConllBIO2003Writer writer = getWriter(targetLocation, additionalParameters);
+			WriterStatistics[] statistics = new WriterStatistics[2];
+			for (int collection = 0; collection < statistics.length; collection++) {
+				FileUtils.cleanDirectory(targetLocation);
+				for (int i = 0; i < DOCUMENTS; i++) {
+					writer.process(generator.createJCas(i));
+				}
+				statistics[collection] = writer.getStatistics();
+				writer.collectionProcessComplete();
+				assertEquals(statistics[collection].documentsWritten.sum(), FileUtils.listFiles(targetLocation, null, false).size());
+			}
+			
+			assertNotSame(statistics[0], statistics[1]);
+			assertTrue(statistics[0].documentsWritten.sum() > 0);
+			assertEquals(statistics[0].toString(), statistics[1].toString());
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	/**
+	 * Process the documents with one writer shared by several threads, created with the given parameters, and compare
+	 * its output with the output of a writer used by a single thread.
+	 */
+	private void assertSharedEqualsSequential(Path tempDir, Object... sharedParameters) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(23L);
+			generator.setTokenCount(300);
+			generator.setNestingDepth(3);
+			generator.setCrossingRate(0.2);
+			generator.setViewCount(3);
+			generator.setViewCoverage(0.5);
+			
+			File sequentialLocation = tempDir.resolve("sequential").toFile();
+			ConllBIO2003Writer sequentialWriter = getWriter(sequentialLocation);
+			ConllBIO2003Writer sharedWriter = getWriter(tempDir.resolve("shared").toFile(), sharedParameters);
+			for (int i = 0; i < DOCUMENTS; i++) {
+				sequentialWriter.process(generator.createJCas(i));
+			}
+			sequentialWriter.collectionProcessComplete();
+			
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				ArrayList<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < DOCUMENTS; i++) {
+					int documentIndex = i;
+					futures.add(executor.submit(() -> {
+						sharedWriter.process(generator.createJCas(documentIndex));
+						return null;
+					}));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+			sharedWriter.collectionProcessComplete();
+			
+			WriterStatistics expected = sequentialWriter.getStatistics();
+			WriterStatistics actual = sharedWriter.getStatistics();
+			assertTrue(expected.documentsWritten.sum() > 0);
+			assertEquals(DOCUMENTS, expected.documentsWritten.sum() + expected.getDocumentsSkipped());
+			assertEquals(expected.toString(), actual.toString());
+			
+			File sharedLocation = tempDir.resolve("shared").toFile();
+			ArrayList<File> sequentialFiles = new ArrayList<>(FileUtils.listFiles(sequentialLocation, null, false));
+			assertEquals(expected.documentsWritten.sum(), sequentialFiles.size());
+			assertEquals(sequentialFiles.size(), FileUtils.listFiles(sharedLocation, null, false).size());
+			for (File sequentialFile : sequentialFiles) {
+				assertEquals(
+						FileUtils.readFileToString(sequentialFile, StandardCharsets.UTF_8),
+						FileUtils.readFileToString(new File(sharedLocation, sequentialFile.getName()), StandardCharsets.UTF_8),
+						sequentialFile.getName()
+				);
+			}
+		} catch (UIMAException | IOException | InterruptedException | ExecutionException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private ConllBIO2003Writer getWriter(File targetLocation, Object... parameters) throws UIMAException {
+		return writers.getWriter(targetLocation, ArrayUtils.addAll(new Object[]{
+				ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 3,
+				ConllBIO2003Writer.PARAM_MIN_VIEWS, 2
+		}, parameters));
+	}
+}
@@ -0,0 +1,101 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.dkpro.core.io.xmi.XmiReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class SyntheticCorpusTest {
+	
+	@Test
+	public void reproducibleFromSeed() {
+		try {
+			SyntheticCorpusGenerator generator = getGenerator(7L);
+			JCas first = generator.createJCas(3);
+			JCas second = getGenerator(7L).createJCas(3);
+			
+			assertEquals(first.getDocumentText(), second.getDocumentText());
+			assertEquals(getAnnotations(first), getAnnotations(second));
+			assertTrue(getAnnotations(first).size() > 0);
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void writeGeneratedCorpus(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = getGenerator(42L);
+			File xmiLocation = tempDir.resolve("xmi").toFile();
+			File conllLocation = tempDir.resolve("conll").toFile();
+			List<File> xmiFiles = generator.writeXmi(xmiLocation, 5);
+			
+			final AnalysisEngine conllEngine = AnalysisEngineFactory.createEngine(
+					ConllBIO2003Writer.class,
+					ConllBIO2003Writer.PARAM_TARGET_LOCATION, conllLocation.getPath(),
+					ConllBIO2003Writer.PARAM_OVERWRITE, true,
+					ConllBIO2003Writer.PARAM_USE_TTLAB_TYPESYSTEM, true,
+					ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 3,
+					ConllBIO2003Writer.PARAM_ANNOTATOR_RELATION, ConllBIO2003Writer.BLACKLIST,
+					ConllBIO2003Writer.PARAM_MIN_VIEWS, 2
+			);
+			CollectionReader reader = CollectionReaderFactory.createReader(XmiReader.class,
+					XmiReader.PARAM_SOURCE_LOCATION, xmiLocation.getPath(),
+					XmiReader.PARAM_PATTERNS, "[+]**.xmi"
+			);
+			try {
+				SimplePipeline.runPipeline(reader, conllEngine);
+			} finally {
+				conllEngine.destroy();
+			}
+			
+			for (int i = 0; i < xmiFiles.size(); i++) {
+				assertTrue(new File(conllLocation, generator.getDocumentId(i) + ".conll").isFile());
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private static SyntheticCorpusGenerator getGenerator(long seed) {
+		SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(seed);
+		generator.setTokenCount(300);
+		generator.setNestingDepth(3);
+		generator.setCrossingRate(0.2);
+		generator.setViewCount(3);
+		generator.setFingerprintCoverage(0.9);
+		generator.setAddIaaView(true);
+		return generator;
+	}
+	
+	private static ArrayList<String> getAnnotations(JCas jCas) throws UIMAException {
+		ArrayList<String> annotations = new ArrayList<>();
+		jCas.getViewIterator().forEachRemaining(viewCas -> {
+			for (Annotation annotation : select(viewCas, Annotation.class)) {
+				annotations.add(String.format("%s %s %d %d", viewCas.getViewName(), annotation.getType().getName(), annotation.getBegin(), annotation.getEnd()));
+			}
+		});
+		return annotations;
+	}
+}
@@ -0,0 +1,205 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class TensorExporterTest {
+	
+	private static final int COLUMNS = 3;
+	
+	private final WriterFixture writers = new WriterFixture();
+	
+	@AfterEach
+	public void destroyWriters() {
+		writers.destroyAll();
+	}
+	
+	@Test
+	public void tensorsEqualConllFiles(@TempDir Path tempDir) {
+		assertTensorsEqualConllFiles(tempDir, false, 1);
+	}
+	
+	@Test
+	public void tensorsHoldOneTagPerLevelWithTTLabFeatures(@TempDir Path tempDir) {
+		assertTensorsEqualConllFiles(tempDir, true, 1);
+	}
+	
+	@Test
+	public void instancesWithSameTargetShareVocabularies(@TempDir Path tempDir) {
+		assertTensorsEqualConllFiles(tempDir, false, 2);
+	}
+	
+	@Test
+	public void vocabularyEntriesWithLineBreaksKeepTheirIds(@TempDir Path tempDir) {
+		try {
+			String text = "Quercus\nrobur C:\\ \\n x\r";
+			TensorExporter tensorExporter = new TensorExporter(tempDir.toFile());
+			TensorExporter.Document document = tensorExporter.newDocument(text, 1);
+			document.addSentence();
+			document.addToken(0, 13, Collections.singletonList("B-Taxon\nPlant"));
+			document.addToken(14, 17, Collections.singletonList("O"));
+			document.addToken(18, 20, Collections.singletonList("O"));
+			document.addToken(21, 23, Collections.singletonList("I-\\"));
+			document.addToken(0, 13, Collections.singletonList("O"));
+			document.write("document");
+			tensorExporter.writeVocabularies();
+			
+			List<String> tokenVocabulary = readVocabulary(new File(tempDir.toFile(), TensorExporter.TOKEN_VOCABULARY));
+			List<String> labelVocabulary = readVocabulary(new File(tempDir.toFile(), TensorExporter.LABEL_VOCABULARY));
+			assertEquals(Arrays.asList("Quercus\nrobur", "C:\\", "\\n", "x\r"), tokenVocabulary);
+			assertEquals(Arrays.asList("B-Taxon\nPlant", "O", "I-\\"), labelVocabulary);
+			
+			ByteBuffer tokens = readNpy(new File(tempDir.toFile(), "document.tokens.npy"), "<i4", "(%d,)");
+			ArrayList<String> actualTokens = new ArrayList<>();
+			while (tokens.hasRemaining()) {
+				actualTokens.add(tokenVocabulary.get(tokens.getInt()));
+			}
+			assertEquals(Arrays.asList("Quercus\nrobur", "C:\\", "\\n", "x\r", "Quercus\nrobur"), actualTokens);
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	/**
+	 * @return The entries of the given vocabulary file, one per line with its escapes replaced.
+	 */
+	private static List<String> readVocabulary(File file) throws IOException {
+		ArrayList<String> entries = new ArrayList<>();
+		for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+			StringBuilder entry = new StringBuilder();
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (c == '\\') {
+					c = line.charAt(++i);
+					entry.append(c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+				} else {
+					entry.append(c);
+				}
+			}
+			entries.add(entry.toString());
+		}
+		return entries;
+	}
+	
+	/**
+	 * Write the documents alternately with the given number of writer instances and compare the arrays with the tags
+	 * of the CoNLL files, which are followed by the flags of their level, e.g. "&lt;ABSTRACT&gt;", with TTLab CoNLL
+	 * features.
+	 */
+	private void assertTensorsEqualConllFiles(Path tempDir, boolean ttlabFeatures, int instanceCount) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(11L);
+			generator.setTokenCount(300);
+			generator.setNestingDepth(3);
+			generator.setViewCount(2);
+			
+			File conllLocation = tempDir.resolve("conll").toFile();
+			File tensorLocation = tempDir.resolve("tensors").toFile();
+			ArrayList<ConllBIO2003Writer> instances = new ArrayList<>();
+			for (int i = 0; i < instanceCount; i++) {
+				instances.add(writers.getWriter(conllLocation,
+						ConllBIO2003Writer.PARAM_TENSOR_TARGET_LOCATION, tensorLocation.getPath(),
+						ConllBIO2003Writer.PARAM_USE_TTLAB_CONLL_FEATURES, ttlabFeatures,
+						ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, COLUMNS
+				));
+			}
+			for (int i = 0; i < 4; i++) {
+				instances.get(i % instanceCount).process(generator.createJCas(i));
+			}
+			for (ConllBIO2003Writer writer : instances) {
+				writer.collectionProcessComplete();
+			}
+			
+			List<String> tokenVocabulary = readVocabulary(new File(tensorLocation, TensorExporter.TOKEN_VOCABULARY));
+			List<String> labelVocabulary = readVocabulary(new File(tensorLocation, TensorExporter.LABEL_VOCABULARY));
+			for (int i = 0; i < 4; i++) {
+				String documentId = generator.getDocumentId(i);
+				List<String> lines = FileUtils.readLines(new File(conllLocation, documentId + ".conll"), StandardCharsets.UTF_8);
+				
+				ByteBuffer sentences = readNpy(new File(tensorLocation, documentId + ".sentences.npy"), "<i8", "(%d,)");
+				ByteBuffer tokens = readNpy(new File(tensorLocation, documentId + ".tokens.npy"), "<i4", "(%d,)");
+				ByteBuffer labels = readNpy(new File(tensorLocation, documentId + ".labels.npy"), "<i4", "(%d, " + COLUMNS + ")");
+				
+				ArrayList<String> expectedRows = new ArrayList<>();
+				ArrayList<Long> expectedOffsets = new ArrayList<>();
+				expectedOffsets.add(0L);
+				for (String line : lines) {
+					if (line.isEmpty()) {
+						expectedOffsets.add((long) expectedRows.size());
+					} else {
+						String[] columns = line.split(" ");
+						StringBuilder row = new StringBuilder(columns[0]);
+						for (int column = 3; column < columns.length; column++) {
+							if (!columns[column].isEmpty() && !columns[column].startsWith("<"))
+								row.append(' ').append(columns[column]);
+						}
+						expectedRows.add(row.toString());
+					}
+				}
+				
+				ArrayList<Long> actualOffsets = new ArrayList<>();
+				while (sentences.hasRemaining()) {
+					actualOffsets.add(sentences.getLong());
+				}
+				ArrayList<String> actualRows = new ArrayList<>();
+				while (tokens.hasRemaining()) {
+					StringBuilder row = new StringBuilder(tokenVocabulary.get(tokens.getInt()));
+					for (int column = 0; column < COLUMNS; column++) {
+						int label = labels.getInt();
+						if (label >= 0)
+							row.append(' ').append(labelVocabulary.get(label));
+					}
+					actualRows.add(row.toString());
+				}
+				
+				assertTrue(expectedRows.size() > 0);
+				assertEquals(expectedOffsets, actualOffsets);
+				assertEquals(expectedRows, actualRows);
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	/**
+	 * @return The data of the given .npy file, after checking its header.
+	 */
+	private static ByteBuffer readNpy(File file, String descr, String shapeFormat) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals((byte) 0x93, buffer.get(0));
+		assertEquals("NUMPY", new String(buffer.array(), 1, 5, StandardCharsets.US_ASCII));
+		int headerLength = buffer.getShort(8);
+		assertEquals(0, (10 + headerLength) % 64);
+		String header = new String(buffer.array(), 10, headerLength, StandardCharsets.US_ASCII);
+		assertTrue(header.startsWith(String.format("{'descr': '%s', 'fortran_order': False, 'shape': ", descr)), header);
+		assertTrue(header.endsWith("\n"));
+		int elementSize = descr.equals("<i8") ? Long.BYTES : Integer.BYTES;
+		int dataLength = buffer.capacity() - 10 - headerLength;
+		int rows = dataLength / elementSize / (shapeFormat.contains(", " + COLUMNS) ? COLUMNS : 1);
+		assertTrue(header.contains(String.format(shapeFormat, rows)), header);
+		buffer.position(10 + headerLength);
+		return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
@@ -0,0 +1,57 @@
+package org.texttechnologylab.uima.conll.extractor;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Creates the {@link ConllBIO2003Writer ConllBIO2003Writers} of a test, configured for the documents of the {@link
+ * SyntheticCorpusGenerator}, and keeps them until they are destroyed by {@link #destroyAll()}, e.g. after each test.
+ */
+final class WriterFixture {
+	
+	private final ArrayList<ConllBIO2003Writer> writers = new ArrayList<>();
+	
+	/**
+	 * @param targetLocation The target location of the CoNLL files.
+	 * @param parameters     Further parameters, which override the defaults: the TTLab type system, all annotators and
+	 *                       a single view per document.
+	 * @return A new, initialized writer.
+	 */
+	ConllBIO2003Writer getWriter(File targetLocation, Object... parameters) throws UIMAException {
+		return getWriter(new ConllBIO2003Writer(), targetLocation, parameters);
+	}
+	
+	/**
+	 * @param writer         An uninitialized writer, e.g. a {@link OneClassPerColumnWriter}.
+	 * @param targetLocation The target location of the CoNLL files.
+	 * @param parameters     Further parameters, which override the defaults.
+	 * @return The given writer, initialized.
+	 * @see #getWriter(File, Object...)
+	 */
+	<T extends ConllBIO2003Writer> T getWriter(T writer, File targetLocation, Object... parameters) throws UIMAException {
+		Object[] defaults = {
+				ConllBIO2003Writer.PARAM_TARGET_LOCATION, targetLocation.getPath(),
+				ConllBIO2003Writer.PARAM_USE_TTLAB_TYPESYSTEM, true,
+				ConllBIO2003Writer.PARAM_ANNOTATOR_RELATION, ConllBIO2003Writer.BLACKLIST,
+				ConllBIO2003Writer.PARAM_MIN_VIEWS, 1
+		};
+		writer.initialize(UimaContextFactory.createUimaContext(ArrayUtils.addAll(defaults, parameters)));
+		writers.add(writer);
+		return writer;
+	}
+	
+	/**
+	 * Destroy all writers created so far, including those that have been destroyed by the test already.
+	 */
+	void destroyAll() {
+		for (ConllBIO2003Writer writer : writers) {
+			writer.destroy();
+		}
+		writers.clear();
+	}
+}
@@ -0,0 +1,241 @@
+package org.texttechnologylab.uima.conll.iobencoder;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.Test;
+import org.texttechnologylab.annotation.AbstractNamedEntity;
+import org.texttechnologylab.annotation.NamedEntity;
+import org.texttechnologylab.annotation.type.Plant_Flora;
+import org.texttechnologylab.annotation.type.Taxon;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class GenericIobEncoderTest {
+	
+	private static final int DOCUMENTS = 8;
+	
+	@Test
+	public void removeSubTokensEqualsSubiteration() {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(29L);
+			generator.setTokenCount(400);
+			generator.setHyphenRate(0.2);
+			for (int document = 0; document < DOCUMENTS; document++) {
+				JCas jCas = generator.createJCas(document);
+				addOverlappingTokens(jCas, new Random(document));
+				
+				LinkedHashSet<Token> subTokens = getSubTokensBySubiteration(jCas);
+				ArrayList<Token> expected = select(jCas, Token.class).stream()
+						.filter(token -> !subTokens.contains(token))
+						.collect(Collectors.toCollection(ArrayList::new));
+				assertTrue(subTokens.size() > 0);
+				
+				DKProHierarchicalIobEncoder encoder = new DKProHierarchicalIobEncoder(jCas);
+				encoder.setMergedCas(jCas);
+				assertEquals(subTokens.size(), encoder.removeSubTokens());
+				assertEquals(expected, new ArrayList<>(select(jCas, Token.class)));
+			}
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void removeDuplicatesEqualsSubiteration() {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(31L);
+			generator.setTokenCount(400);
+			generator.setNestingDepth(3);
+			generator.setCrossingRate(0.2);
+			generator.setViewCount(3);
+			for (int document = 0; document < DOCUMENTS; document++) {
+				TTLabHierarchicalIobEncoder encoder = new TTLabHierarchicalIobEncoder(generator.createJCas(document));
+				encoder.setMergeViews(true);
+				encoder.mergeViews();
+				JCas mergedCas = encoder.getMergedCas();
+				addDuplicateEntities(mergedCas, new Random(document));
+				
+				LinkedHashSet<Annotation> namedEntities = new LinkedHashSet<>();
+				namedEntities.addAll(select(mergedCas, NamedEntity.class));
+				namedEntities.addAll(select(mergedCas, AbstractNamedEntity.class));
+				for (boolean constraintBegin : new boolean[]{false, true}) {
+					for (boolean constraintEnd : new boolean[]{false, true}) {
+						encoder.setRemoveDuplicateConstraintBegin(constraintBegin);
+						encoder.setRemoveDuplicateConstraintEnd(constraintEnd);
+						
+						LinkedHashSet<Annotation> expected = new LinkedHashSet<>(namedEntities);
+						removeDuplicatesBySubiteration(encoder, expected);
+						LinkedHashSet<Annotation> actual = new LinkedHashSet<>(namedEntities);
+						encoder.removeDuplicates(actual);
+						
+						// Entities with the same span compare equal in the index and are never removed
+						if (!constraintBegin || !constraintEnd)
+							assertTrue(expected.size() < namedEntities.size());
+						assertEquals(new ArrayList<>(expected), new ArrayList<>(actual), String.format("begin %b, end %b", constraintBegin, constraintEnd));
+					}
+				}
+			}
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void projectionMergeEqualsFullMerge() {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(37L);
+			generator.setTokenCount(300);
+			generator.setNestingDepth(2);
+			generator.setViewCount(3);
+			for (int document = 0; document < DOCUMENTS; document++) {
+				JCas jCas = generator.createJCas(document);
+				JCas[] mergedCases = new JCas[2];
+				for (int projection = 0; projection < mergedCases.length; projection++) {
+					TTLabHierarchicalIobEncoder encoder = new TTLabHierarchicalIobEncoder(jCas);
+					encoder.setMergeViews(true);
+					encoder.setUseProjectionMerge(projection == 1);
+					encoder.mergeViews();
+					mergedCases[projection] = encoder.getMergedCas();
+				}
+				JCas fullCas = mergedCases[0];
+				JCas projectedCas = mergedCases[1];
+				
+				assertEquals("de", projectedCas.getDocumentLanguage());
+				assertEquals(fullCas.getDocumentLanguage(), projectedCas.getDocumentLanguage());
+				assertEquals(DocumentMetaData.get(jCas).getDocumentId(), DocumentMetaData.get(projectedCas).getDocumentId());
+				assertEquals(DocumentMetaData.get(fullCas).getLanguage(), DocumentMetaData.get(projectedCas).getLanguage());
+				List<String> fullEntities = getAnnotations(fullCas, AbstractNamedEntity.class);
+				assertTrue(fullEntities.size() > 0);
+				assertEquals(fullEntities, getAnnotations(projectedCas, AbstractNamedEntity.class));
+				assertEquals(getAnnotations(fullCas, NamedEntity.class), getAnnotations(projectedCas, NamedEntity.class));
+				assertEquals(getAnnotations(fullCas, Token.class), getAnnotations(projectedCas, Token.class));
+			}
+			
+			// The language is kept without DocumentMetaData, too
+			JCas jCas = MergedCasPool.createMergedCas();
+			jCas.setDocumentText("Quercus robur");
+			jCas.setDocumentLanguage("la");
+			TTLabHierarchicalIobEncoder encoder = new TTLabHierarchicalIobEncoder(jCas);
+			encoder.setMergeViews(true);
+			encoder.setUseProjectionMerge(true);
+			encoder.mergeViews();
+			assertEquals("la", encoder.getMergedCas().getDocumentLanguage());
+		} catch (UIMAException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	/**
+	 * The removal of sub-tokens before {@link GenericIobEncoder#removeSubTokens()}, which subiterates the CAS once
+	 * for each token.
+	 *
+	 * @return The tokens that are covered by another token, in the order they were found.
+	 */
+	private static LinkedHashSet<Token> getSubTokensBySubiteration(JCas jCas) {
+		LinkedHashSet<Token> subTokens = new LinkedHashSet<>();
+		JCasUtil.select(jCas, Token.class).forEach(
+				token -> JCasUtil.subiterate(jCas, Token.class, token, true, true).forEach(
+						subTokens::add
+				)
+		);
+		return subTokens;
+	}
+	
+	/**
+	 * The removal of duplicates before {@link GenericIobEncoder#removeDuplicates(LinkedHashSet)}, which subiterates the
+	 * {@link GenericIobEncoder#mergedCas} once for each entity.
+	 */
+	private static <T extends Annotation> void removeDuplicatesBySubiteration(GenericIobEncoder<T> encoder, LinkedHashSet<T> namedEntities) {
+		LinkedHashSet<T> iterNamedEntities = new LinkedHashSet<>(namedEntities);
+		for (T parentNamedEntity : iterNamedEntities) {
+			JCasUtil.subiterate(encoder.getMergedCas(), encoder.type, parentNamedEntity, true, true)
+					.forEach(childNamedEntity -> {
+						if (namedEntities.contains(childNamedEntity)
+								&& parentNamedEntity.getType().getShortName().equals(childNamedEntity.getType().getShortName())
+								&& (!encoder.removeDuplicateConstraintBegin || parentNamedEntity.getBegin() == childNamedEntity.getBegin())
+								&& (!encoder.removeDuplicateConstraintEnd || parentNamedEntity.getEnd() == childNamedEntity.getEnd())
+						)
+							namedEntities.remove(childNamedEntity);
+					});
+		}
+	}
+	
+	/**
+	 * Add entities at the span of some of the existing entities: of the same type, of another type, and of the same
+	 * type sharing only the begin or the end.
+	 */
+	private static void addDuplicateEntities(JCas jCas, Random random) {
+		ArrayList<Annotation> namedEntities = new ArrayList<>(select(jCas, NamedEntity.class));
+		for (int i = 0; i < namedEntities.size(); i += 1 + random.nextInt(4)) {
+			Annotation namedEntity = namedEntities.get(i);
+			int begin = namedEntity.getBegin();
+			int end = namedEntity.getEnd();
+			switch (random.nextInt(4)) {
+				case 0:
+					new Taxon(jCas, begin, end).addToIndexes();
+					new Taxon(jCas, begin, end).addToIndexes();
+					break;
+				case 1:
+					new Taxon(jCas, begin, end).addToIndexes();
+					new Plant_Flora(jCas, begin, end).addToIndexes();
+					break;
+				case 2:
+					new Plant_Flora(jCas, begin, Math.max(begin + 1, end - 2)).addToIndexes();
+					new Plant_Flora(jCas, begin, end).addToIndexes();
+					break;
+				default:
+					new Taxon(jCas, Math.min(end - 1, begin + 2), end).addToIndexes();
+					new Taxon(jCas, begin, end).addToIndexes();
+					break;
+			}
+		}
+	}
+	
+	private static List<String> getAnnotations(JCas jCas, Class<? extends Annotation> type) {
+		return select(jCas, type).stream()
+				.map(annotation -> String.format("%s %d %d", annotation.getType().getName(), annotation.getBegin(), annotation.getEnd()))
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Add tokens that are identical to, span, cross or share the begin of the existing tokens.
+	 */
+	private static void addOverlappingTokens(JCas jCas, Random random) {
+		ArrayList<Token> tokens = new ArrayList<>(select(jCas, Token.class));
+		for (int i = 0; i + 1 < tokens.size(); i += 1 + random.nextInt(8)) {
+			Token token = tokens.get(i);
+			Token next = tokens.get(i + 1);
+			switch (random.nextInt(4)) {
+				case 0:
+					new Token(jCas, token.getBegin(), token.getEnd()).addToIndexes();
+					break;
+				case 1:
+					new Token(jCas, token.getBegin(), next.getEnd()).addToIndexes();
+					break;
+				case 2:
+					new Token(jCas, token.getEnd() - 1, Math.max(token.getEnd(), next.getEnd() - 1)).addToIndexes();
+					break;
+				default:
+					new Token(jCas, token.getBegin(), token.getBegin() + 1).addToIndexes();
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package org.texttechnologylab.uima.conll.run;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class DatasetAssemblerTest {
+	
+	@Test
+	public void assembleSplits(@TempDir Path tempDir) {
+		try {
+			File conllLocation = tempDir.resolve("conll").toFile();
+			for (String id : new String[]{"c", "a", "d", "b"}) {
+				FileUtils.write(new File(conllLocation, id + ".conll"), String.format("Token-%s O\nÄpfel B-Plant_Flora\n\n", id), StandardCharsets.UTF_8);
+			}
+			FileUtils.write(new File(conllLocation, "e.txt"), "Not a CoNLL file.", StandardCharsets.UTF_8);
+			
+			File datasetLocation = tempDir.resolve("dataset").toFile();
+			DatasetAssembler.Result result = new DatasetAssembler(conllLocation, ".conll")
+					.assemble(datasetLocation, ImmutableSet.of("d", "b", "missing"));
+			
+			assertEquals(2, result.trainDocuments);
+			assertEquals(2, result.testDocuments);
+			assertEquals(ImmutableSet.of("missing"), result.missingTestIds);
+			assertEquals(
+					"Token-a O\nÄpfel B-Plant_Flora\n\nToken-c O\nÄpfel B-Plant_Flora\n\n",
+					FileUtils.readFileToString(new File(datasetLocation, "train.conll"), StandardCharsets.UTF_8)
+			);
+			assertEquals(
+					"Token-b O\nÄpfel B-Plant_Flora\n\nToken-d O\nÄpfel B-Plant_Flora\n\n",
+					FileUtils.readFileToString(new File(datasetLocation, "test.conll"), StandardCharsets.UTF_8)
+			);
+			assertEquals(new File(datasetLocation, "train.conll").length() + new File(datasetLocation, "test.conll").length(), result.bytes);
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+}
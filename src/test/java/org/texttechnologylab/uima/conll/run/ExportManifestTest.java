@@ -0,0 +1,88 @@
+package org.texttechnologylab.uima.conll.run;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ExportManifestTest {
+	
+	@Test
+	public void planIncrementalExports(@TempDir Path tempDir) {
+		try {
+			File sourceLocation = tempDir.resolve("xmi").toFile();
+			File outputLocation = tempDir.resolve("conll").toFile();
+			File a = writeFile(new File(sourceLocation, "a.xmi"), "a");
+			File b = writeFile(new File(sourceLocation, "sub/b.xmi"), "b");
+			File c = writeFile(new File(sourceLocation, "c.xmi"), "c");
+			ImmutableSet<String> testIds = ImmutableSet.of("b");
+			
+			// Initial export, c is skipped by the writer
+			ExportManifest manifest = ExportManifest.load(outputLocation);
+			ExportManifest.Plan plan = manifest.plan(sourceLocation, ImmutableList.of(a, b, c), "config");
+			assertEquals(ImmutableList.of(a, b, c), plan.getChangedFiles());
+			export(plan, outputLocation, a, "a.conll", true);
+			export(plan, outputLocation, b, "b.conll", true);
+			export(plan, outputLocation, c, "c.conll", false);
+			assertEquals(ImmutableSet.of(ExportManifest.TRAIN, ExportManifest.TEST), plan.apply(testIds, ".conll"));
+			manifest.save();
+			
+			// Nothing has changed
+			manifest = ExportManifest.load(outputLocation);
+			assertEquals(3, manifest.size());
+			plan = manifest.plan(sourceLocation, ImmutableList.of(a, b, c), "config");
+			assertTrue(plan.getChangedFiles().isEmpty());
+			assertTrue(plan.getDeletedInputs().isEmpty());
+			assertTrue(plan.apply(testIds, ".conll").isEmpty());
+			
+			// a has changed and b was deleted
+			writeFile(a, "a2");
+			FileUtils.forceDelete(b);
+			plan = manifest.plan(sourceLocation, ImmutableList.of(a, c), "config");
+			assertEquals(ImmutableList.of(a), plan.getChangedFiles());
+			assertEquals(ImmutableSet.of("sub/b.xmi"), plan.getDeletedInputs());
+			assertEquals(2, plan.deleteStaleOutputs());
+			assertFalse(new File(outputLocation, "b.conll").exists());
+			export(plan, outputLocation, a, "a.conll", true);
+			assertEquals(ImmutableSet.of(ExportManifest.TRAIN, ExportManifest.TEST), plan.apply(testIds, ".conll"));
+			manifest.save();
+			
+			// Only a change of the test ids affects the splits of unchanged documents
+			manifest = ExportManifest.load(outputLocation);
+			assertEquals(2, manifest.size());
+			plan = manifest.plan(sourceLocation, ImmutableList.of(a, c), "config");
+			assertTrue(plan.getChangedFiles().isEmpty());
+			assertEquals(ImmutableSet.of(ExportManifest.TRAIN, ExportManifest.TEST), plan.apply(ImmutableSet.of("a"), ".conll"));
+			
+			// A changed configuration or a missing output requires a new export
+			assertEquals(ImmutableList.of(a, c), manifest.plan(sourceLocation, ImmutableList.of(a, c), "other config").getChangedFiles());
+			FileUtils.forceDelete(new File(outputLocation, "a.conll"));
+			assertEquals(ImmutableList.of(a), manifest.plan(sourceLocation, ImmutableList.of(a, c), "config").getChangedFiles());
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	private static void export(ExportManifest.Plan plan, File outputLocation, File xmiFile, String output, boolean written) throws IOException {
+		plan.record(xmiFile, output);
+		if (written)
+			writeFile(new File(outputLocation, output), xmiFile.getName());
+	}
+	
+	private static File writeFile(File file, String content) throws IOException {
+		FileUtils.write(file, content, StandardCharsets.UTF_8);
+		return file;
+	}
+}
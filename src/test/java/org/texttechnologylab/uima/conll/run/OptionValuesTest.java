@@ -0,0 +1,41 @@
+package org.texttechnologylab.uima.conll.run;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class OptionValuesTest {
+	
+	@Test
+	public void invalidValuesAreRejected() {
+		try {
+			assertEquals(1, OptionValues.getInt(parse(), "threads", 1, 1, Integer.MAX_VALUE));
+			assertEquals(32, OptionValues.getInt(parse("-threads", "32"), "threads", 1, 1, Integer.MAX_VALUE));
+			assertEquals(6, OptionValues.getInt(parse("-gzip"), "gzip", 6, 1, 9));
+			assertEquals(9, OptionValues.getInt(parse("-gzip", "9"), "gzip", 6, 1, 9));
+		} catch (ParseException e) {
+			e.printStackTrace();
+			fail();
+		}
+		assertThrows(ParseException.class, () -> OptionValues.getInt(parse("-threads", "0"), "threads", 1, 1, Integer.MAX_VALUE));
+		assertThrows(ParseException.class, () -> OptionValues.getInt(parse("-threads", "-4"), "threads", 1, 1, Integer.MAX_VALUE));
+		assertThrows(ParseException.class, () -> OptionValues.getInt(parse("-threads", "many"), "threads", 1, 1, Integer.MAX_VALUE));
+		assertThrows(ParseException.class, () -> OptionValues.getInt(parse("-gzip", "10"), "gzip", 6, 1, 9));
+	}
+	
+	private static CommandLine parse(String... args) throws ParseException {
+		Options options = new Options();
+		options.addOption(new Option("threads", true, ""));
+		Option gzipOption = new Option("gzip", true, "");
+		gzipOption.setOptionalArg(true);
+		options.addOption(gzipOption);
+		return new DefaultParser().parse(options, args);
+	}
+}
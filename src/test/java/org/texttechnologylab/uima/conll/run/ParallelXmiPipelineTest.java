@@ -0,0 +1,136 @@
+package org.texttechnologylab.uima.conll.run;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.dkpro.core.io.xmi.XmiReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.texttechnologylab.uima.conll.SyntheticCorpusGenerator;
+import org.texttechnologylab.uima.conll.extractor.ConllBIO2003Writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ParallelXmiPipelineTest {
+	
+	@Test
+	public void parallelOutputEqualsSequentialOutput(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(13L);
+			generator.setTokenCount(400);
+			generator.setNestingDepth(3);
+			generator.setCrossingRate(0.2);
+			generator.setViewCount(3);
+			File xmiLocation = tempDir.resolve("xmi").toFile();
+			generator.writeXmi(xmiLocation, 12);
+			
+			File sequentialLocation = tempDir.resolve("sequential").toFile();
+			SimplePipeline.runPipeline(
+					CollectionReaderFactory.createReader(XmiReader.class,
+							XmiReader.PARAM_SOURCE_LOCATION, xmiLocation.getPath(),
+							XmiReader.PARAM_PATTERNS, "[+]**.xmi",
+							XmiReader.PARAM_LENIENT, true
+					),
+					getWriterDescription(sequentialLocation)
+			);
+			
+			File parallelLocation = tempDir.resolve("parallel").toFile();
+			int processed = new ParallelXmiPipeline(4, getWriterDescription(parallelLocation))
+					.run(xmiLocation, ParallelXmiPipeline.listXmiFiles(xmiLocation, true));
+			assertEquals(12, processed);
+			
+			ArrayList<File> sequentialFiles = new ArrayList<>(FileUtils.listFiles(sequentialLocation, null, false));
+			sequentialFiles.sort(null);
+			assertEquals(12, sequentialFiles.size());
+			for (File sequentialFile : sequentialFiles) {
+				File parallelFile = new File(parallelLocation, sequentialFile.getName());
+				assertEquals(
+						FileUtils.readFileToString(sequentialFile, StandardCharsets.UTF_8),
+						FileUtils.readFileToString(parallelFile, StandardCharsets.UTF_8),
+						sequentialFile.getName()
+				);
+			}
+			assertEquals(sequentialFiles.size(), FileUtils.listFiles(parallelLocation, null, false).size());
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	@Test
+	public void parallelDatasetEqualsSequentialDataset(@TempDir Path tempDir) {
+		try {
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(19L);
+			generator.setTokenCount(300);
+			generator.setNestingDepth(2);
+			generator.setViewCount(3);
+			File xmiLocation = tempDir.resolve("xmi").toFile();
+			generator.writeXmi(xmiLocation, 16);
+			String[] testIds = {generator.getDocumentId(3), generator.getDocumentId(10)};
+			
+			File sequentialLocation = tempDir.resolve("sequential").toFile();
+			SimplePipeline.runPipeline(
+					CollectionReaderFactory.createReader(XmiReader.class,
+							XmiReader.PARAM_SOURCE_LOCATION, xmiLocation.getPath(),
+							XmiReader.PARAM_PATTERNS, "[+]**.xmi",
+							XmiReader.PARAM_LENIENT, true
+					),
+					getWriterDescription(tempDir.resolve("unused").toFile(),
+							ConllBIO2003Writer.PARAM_DATASET_LOCATION, sequentialLocation.getPath(),
+							ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIds)
+			);
+			
+			File parallelLocation = tempDir.resolve("parallel").toFile();
+			new ParallelXmiPipeline(4, getWriterDescription(tempDir.resolve("unused").toFile(),
+					ConllBIO2003Writer.PARAM_DATASET_LOCATION, parallelLocation.getPath(),
+					ConllBIO2003Writer.PARAM_DATASET_TEST_IDS, testIds))
+					.run(xmiLocation, ParallelXmiPipeline.listXmiFiles(xmiLocation, true));
+			
+			for (String split : new String[]{"train.conll", "test.conll"}) {
+				List<String> sequentialSentences = getSortedSentences(new File(sequentialLocation, split));
+				assertTrue(sequentialSentences.size() > 1, split);
+				assertEquals(sequentialSentences, getSortedSentences(new File(parallelLocation, split)), split);
+			}
+		} catch (UIMAException | IOException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+	
+	/**
+	 * @return The sentences of the given CoNLL file, sorted as documents are appended in the order they complete.
+	 */
+	private static List<String> getSortedSentences(File file) throws IOException {
+		List<String> sentences = Arrays.asList(FileUtils.readFileToString(file, StandardCharsets.UTF_8).split("\\R\\R"));
+		sentences.sort(null);
+		return sentences;
+	}
+	
+	private static AnalysisEngineDescription getWriterDescription(File targetLocation, Object... additionalParameters) throws UIMAException {
+		return AnalysisEngineFactory.createEngineDescription(
+				ConllBIO2003Writer.class,
+				ArrayUtils.addAll(new Object[]{
+						ConllBIO2003Writer.PARAM_TARGET_LOCATION, targetLocation.getPath(),
+						ConllBIO2003Writer.PARAM_OVERWRITE, true,
+						ConllBIO2003Writer.PARAM_USE_TTLAB_TYPESYSTEM, true,
+						ConllBIO2003Writer.PARAM_NAMED_ENTITY_COLUMNS, 3,
+						ConllBIO2003Writer.PARAM_ANNOTATOR_RELATION, ConllBIO2003Writer.BLACKLIST,
+						ConllBIO2003Writer.PARAM_MIN_VIEWS, 2
+				}, additionalParameters)
+		);
+	}
+}